@@ -18,22 +18,30 @@ package com.lomcat.caramel.config.local;
 
 import com.lomcat.caramel.config.ConfigResource;
 import com.lomcat.caramel.config.ConfigResourceLocator;
+import com.lomcat.caramel.config.ConfigResourceProbe;
 import com.lomcat.caramel.config.ConfigResourceBunch;
 import com.lomcat.caramel.config.exception.ConfigLocateException;
 import com.lomcat.caramel.core.assist.ArrayAide;
 import com.lomcat.caramel.core.assist.CollectionAide;
 import com.lomcat.caramel.core.assist.MapAide;
 import com.lomcat.caramel.core.assist.StringAide;
+import com.lomcat.caramel.core.io.ClassPathIndex;
 import com.lomcat.caramel.core.io.DefaultResourceLoader;
 import com.lomcat.caramel.core.io.Resource;
 import com.lomcat.caramel.core.io.ResourceLoader;
+import com.lomcat.caramel.core.io.ResourceUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.file.InvalidPathException;
 import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 /**
  * 本地配置文件定位器，{@link ConfigResourceLocator} 的实现，用于定位程序本地的配置文件。
@@ -62,6 +70,10 @@ public class LocalConfigResourceLocator implements ConfigResourceLocator {
     private static final String[] DEFAULT_PATHS = {"classpath:/", "classpath:/config/", "file:./", "file:./config/"};
     /** 配置文件约定类型，优先级递增，后面的配置将覆盖前面的（若后面配置中某个属性未指定则不会覆盖） */
     private static final String[] DEFAULT_EXTENSIONS = {"", ".properties", ".json", ".conf"};
+    /** 资源解析缓存的容量 */
+    private static final int RESOLUTION_CACHE_SIZE = 1024;
+    /** 资源解析缓存中可变结果（否定结果、文件系统及远程资源）的有效期 */
+    private static final Duration RESOLUTION_CACHE_TTL = Duration.ofSeconds(60);
 
     /**
      * 定位器的执行优先级
@@ -77,6 +89,19 @@ public class LocalConfigResourceLocator implements ConfigResourceLocator {
      * 多个定位描述对象，描述配置文件所在位置
      */
     private LocalConfigPosition[] positions;
+    /**
+     * 资源加载器，在各次定位（包括刷新时的重新定位）之间共享，缓存类路径资源的解析结果，避免每次定位都重新扫描类路径
+     */
+    private final DefaultResourceLoader resourceLoader;
+    /**
+     * 是否使用类路径索引定位类路径中的配置文件，开启后首次定位时并行构建索引，适用于类路径中 jar 数量较多的应用（如 Spring Boot 可执行 jar）
+     */
+    private boolean classPathIndexEnabled;
+
+    public LocalConfigResourceLocator() {
+        this.resourceLoader = new DefaultResourceLoader();
+        this.resourceLoader.enableResolutionCache(RESOLUTION_CACHE_SIZE, RESOLUTION_CACHE_TTL);
+    }
 
     /**
      * 执行定位
@@ -85,7 +110,82 @@ public class LocalConfigResourceLocator implements ConfigResourceLocator {
      */
     @Override
     public Map<String, List<ConfigResourceBunch>> locate() {
-        return resolveConfigResourceBunches(resolveConfigPositions(locations, positions));
+        return resolveConfigResourceBunches(resolveConfigPositions(locations, positions), new DirectoryListings(classPathIndex()), this.resourceLoader);
+    }
+
+    /**
+     * 只对指定 key 的定位描述执行定位
+     *
+     * @param keys 需要定位的 key
+     * @return 以配置数据 key 为键，以同 key 配置文件资源集合为值的映射，只包含指定的 key
+     */
+    @Override
+    public Map<String, List<ConfigResourceBunch>> locate(Collection<String> keys) {
+        List<LocalConfigPosition> scoped = resolveConfigPositions(locations, positions).stream()
+                .filter(position -> keys.contains(position.getKey()))
+                .collect(Collectors.toList());
+        return resolveConfigResourceBunches(scoped, new DirectoryListings(classPathIndex()), this.resourceLoader);
+    }
+
+    /**
+     * 获取类路径索引，未开启时返回 null。索引只构建一次，其中 jar 的内容不会变化，类路径目录在查找时实时检查
+     */
+    private ClassPathIndex classPathIndex() {
+        if (!this.classPathIndexEnabled) {
+            return null;
+        }
+        synchronized (this.resourceLoader) {
+            ClassPathIndex index = this.resourceLoader.getClassPathIndex();
+            if (index == null) {
+                index = ClassPathIndex.build(this.resourceLoader.getClassLoader(), ForkJoinPool.commonPool());
+                this.resourceLoader.setClassPathIndex(index);
+            }
+            return index;
+        }
+    }
+
+    @Override
+    public void invalidate() {
+        this.resourceLoader.invalidateResolutions();
+    }
+
+    /**
+     * 关闭类路径索引打开的 jar 文件，之后再次定位时将重新构建索引
+     */
+    @Override
+    public void destroy() {
+        synchronized (this.resourceLoader) {
+            ClassPathIndex index = this.resourceLoader.getClassPathIndex();
+            if (index != null) {
+                this.resourceLoader.setClassPathIndex(null);
+                index.close();
+            }
+        }
+    }
+
+    /**
+     * 各定位描述在文件系统中查找配置文件的位置（包括未指定路径时的约定目录），目录及配置文件均可能尚不存在
+     *
+     * @return 查找位置的集合
+     */
+    @Override
+    public Collection<ConfigResourceProbe> getProbes() {
+        Set<ConfigResourceProbe> probes = new LinkedHashSet<>();
+        resolveConfigPositions(locations, positions).forEach(position -> resolvePaths(position).forEach(path -> {
+            Resource resource = this.resourceLoader.getResource(path);
+            if (resource.isFile()) {
+                try {
+                    // 名称中可能含有子目录
+                    File file = new File(resource.getFile(), position.getName()).toPath().toAbsolutePath().normalize().toFile();
+                    if (file.getParentFile() != null) {
+                        probes.add(new ConfigResourceProbe(file.getParentFile(), file.getName(), position.getKey(), position.getRefreshEnabled()));
+                    }
+                } catch (IOException | InvalidPathException ex) {
+                    logger.debug("[Caramel.LocalLocator] Cannot resolve probe directory: {}", path);
+                }
+            }
+        }));
+        return probes;
     }
 
     /**
@@ -184,18 +284,12 @@ public class LocalConfigResourceLocator implements ConfigResourceLocator {
      *     </ul>
      * </p>
      */
-    private static Map<String, List<ConfigResourceBunch>> resolveConfigResourceBunches(List<LocalConfigPosition> positions) {
+    private static Map<String, List<ConfigResourceBunch>> resolveConfigResourceBunches(List<LocalConfigPosition> positions, DirectoryListings listings, ResourceLoader resourceLoader) {
         Map<String, List<ConfigResourceBunch>> bunchesMap = new HashMap<>();
 
         if (CollectionAide.isNotEmpty(positions)) {
             positions.forEach(position -> {
-                List<String> paths = new LinkedList<>();
-                if (StringAide.isNotBlank(position.getPath())) {
-                    paths.add(position.getPath());
-                } else {
-                    // 若未限定配置文件所在根目录，则遍历 DEFAULT_PATHS 中的默认根目录进行查找
-                    paths.addAll(Arrays.asList(DEFAULT_PATHS));
-                }
+                List<String> paths = resolvePaths(position);
 
                 List<String> extensions = new LinkedList<>();
                 if (StringAide.isNotBlank(position.getExtension())) {
@@ -206,7 +300,7 @@ public class LocalConfigResourceLocator implements ConfigResourceLocator {
                 }
 
                 // 根据路径和扩展名查找配置资源
-                Map<String, ConfigResource> resources = resolveResources(position.getName(), paths, extensions);
+                Map<String, ConfigResource> resources = resolveResources(position.getName(), paths, extensions, listings, resourceLoader);
                 if (MapAide.isNotEmpty(resources)) {
                     ConfigResourceBunch bunch = ConfigResourceBunch.create(position.getKey(), position.getName(), position.getPriority(), resources, position.getRefreshEnabled());
                     List<ConfigResourceBunch> cachedBunches = bunchesMap.computeIfAbsent(bunch.getKey(), k -> new ArrayList<>());
@@ -218,11 +312,20 @@ public class LocalConfigResourceLocator implements ConfigResourceLocator {
         return bunchesMap;
     }
 
+    private static List<String> resolvePaths(LocalConfigPosition position) {
+        List<String> paths = new LinkedList<>();
+        if (StringAide.isNotBlank(position.getPath())) {
+            paths.add(position.getPath());
+        } else {
+            // 若未限定配置文件所在根目录，则遍历 DEFAULT_PATHS 中的默认根目录进行查找
+            paths.addAll(Arrays.asList(DEFAULT_PATHS));
+        }
+        return paths;
+    }
 
-    private static Map<String, ConfigResource> resolveResources(String name, List<String> paths, List<String> extensions) {
+    private static Map<String, ConfigResource> resolveResources(String name, List<String> paths, List<String> extensions, DirectoryListings listings, ResourceLoader resourceLoader) {
         Map<String, ConfigResource> resources = new HashMap<>();
 
-        ResourceLoader resourceLoader = new DefaultResourceLoader();
         AtomicInteger priority = new AtomicInteger(0);
         paths.forEach(path -> extensions.forEach(extension -> {
             StringBuilder pathBuilder = new StringBuilder();
@@ -231,6 +334,7 @@ public class LocalConfigResourceLocator implements ConfigResourceLocator {
             if (!path.endsWith(PATH_SEPARATOR)) {
                 pathBuilder.append(PATH_SEPARATOR);
             }
+            String directory = pathBuilder.toString();
 
             pathBuilder.append(name);
 
@@ -241,9 +345,15 @@ public class LocalConfigResourceLocator implements ConfigResourceLocator {
                 }
                 pathBuilder.append(extension);
             }
+            String filename = pathBuilder.substring(directory.length());
 
+            // 文件系统中的目录以列表判断文件是否存在，无法列出的目录逐一检查
+            Boolean listed = listings.contains(directory, filename, resourceLoader);
+            if (Boolean.FALSE.equals(listed)) {
+                return;
+            }
             Resource resource = resourceLoader.getResource(pathBuilder.toString());
-            if (resource.exists()) {
+            if (listed != null || resource.exists()) {
                 try {
                     resources.put(resource.getDescription(), ConfigResource.create(resource, (double) priority.incrementAndGet()));
                 } catch (NoSuchAlgorithmException | IOException ex) {
@@ -255,6 +365,55 @@ public class LocalConfigResourceLocator implements ConfigResourceLocator {
         return resources;
     }
 
+    /**
+     * 单次定位过程中目录内容的缓存，结构为 < 目录位置, 目录中的文件名 >，每个目录只列出一次。
+     * 缓存 {@code file:} 位置的目录；类路径目录可能分布在多个根目录和 jar 中，只有在完整的类路径索引可用时才能由索引列出。
+     */
+    private static class DirectoryListings {
+        /** 目录不存在或无法列出时，值为空集合 */
+        private final Map<String, Set<String>> listings = new HashMap<>();
+        private final ClassPathIndex classPathIndex;
+
+        private DirectoryListings(ClassPathIndex classPathIndex) {
+            this.classPathIndex = classPathIndex != null && classPathIndex.isComplete() ? classPathIndex : null;
+        }
+
+        /**
+         * @return 目录中是否存在指定文件，无法由目录列表确定时返回 null
+         */
+        private Boolean contains(String directory, String filename, ResourceLoader resourceLoader) {
+            if (filename.contains(PATH_SEPARATOR)) {
+                return null;
+            }
+            if (directory.startsWith(ResourceUtils.URL_PREFIX_CLASSPATH) && this.classPathIndex != null) {
+                Set<String> names = this.listings.computeIfAbsent(directory, this::listClassPath);
+                return names.contains(filename);
+            }
+            if (!directory.startsWith(ResourceUtils.URL_PREFIX_FILE)) {
+                return null;
+            }
+            Set<String> names = this.listings.computeIfAbsent(directory, location -> list(location, resourceLoader));
+            return names.contains(filename);
+        }
+
+        private Set<String> listClassPath(String directory) {
+            String path = ResourceUtils.normalizePath(directory.substring(ResourceUtils.URL_PREFIX_CLASSPATH.length()));
+            while (path.startsWith(PATH_SEPARATOR)) {
+                path = path.substring(1);
+            }
+            return this.classPathIndex.list(path);
+        }
+
+        private static Set<String> list(String directory, ResourceLoader resourceLoader) {
+            try {
+                String[] names = resourceLoader.getResource(directory).getFile().list();
+                return names != null ? new HashSet<>(Arrays.asList(names)) : Collections.emptySet();
+            } catch (IOException ex) {
+                return Collections.emptySet();
+            }
+        }
+    }
+
     /** 检查并提取 key 和 priority */
     private static class LocationSegmentPickup {
         private String originalLocation;
@@ -377,4 +536,12 @@ public class LocalConfigResourceLocator implements ConfigResourceLocator {
     public void setPositions(LocalConfigPosition[] positions) {
         this.positions = positions;
     }
+
+    public boolean isClassPathIndexEnabled() {
+        return classPathIndexEnabled;
+    }
+
+    public void setClassPathIndexEnabled(boolean classPathIndexEnabled) {
+        this.classPathIndexEnabled = classPathIndexEnabled;
+    }
 }
\ No newline at end of file
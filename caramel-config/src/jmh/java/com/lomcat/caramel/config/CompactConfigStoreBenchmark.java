@@ -0,0 +1,114 @@
+/*
+ * Copyright 2018-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.lomcat.caramel.config;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 紧凑存储（{@link CompactConfigStore}）与默认存储（扁平索引）及 {@link Config} 的读取延迟基准，
+ * 内存占用对比（{@link ConfigMemoryReport} 估算值）由 {@link #footprint(Footprint)} 作为次要结果报告。
+ *
+ * @author Kweny
+ * @since 0.0.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompactConfigStoreBenchmark {
+
+    @Param({"10000", "100000"})
+    private int properties;
+
+    private Config content;
+    private CaramelConfig indexedConfig;
+    private CaramelConfig compactConfig;
+    private String[] paths;
+    private int cursor;
+
+    @Setup
+    public void setup() {
+        Map<String, Object> values = new HashMap<>();
+        paths = new String[properties];
+        for (int i = 0; i < properties; i++) {
+            paths[i] = String.format("routes.group-%d.route-%d.target", i % 128, i);
+            values.put(paths[i], "host-" + (i % 1024) + ":8080");
+        }
+        content = ConfigFactory.parseMap(values);
+
+        indexedConfig = new CaramelConfig("indexed", content, false, false);
+        compactConfig = new CaramelConfig("compact", content, false, true);
+
+        // 预先构建扁平索引
+        indexedConfig.getString(paths[0]);
+    }
+
+    private String nextPath() {
+        int index = cursor;
+        cursor = index + 1 == paths.length ? 0 : index + 1;
+        return paths[index];
+    }
+
+    /**
+     * 内存占用估算值，以 JMH 次要结果报告（单位：字节）
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+        public long indexedBytes;
+        public long compactBytes;
+    }
+
+    /**
+     * 估算两种存储的内存占用，只执行一次，以免次要结果在多次迭代间累加
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1)
+    public void footprint(Footprint footprint) {
+        Map<String, CaramelConfig> configs = new HashMap<>();
+        configs.put(indexedConfig.getKey(), indexedConfig);
+        configs.put(compactConfig.getKey(), compactConfig);
+        Map<String, ConfigMemoryReport> reports = ConfigMemoryReport.of(configs);
+        footprint.indexedBytes = reports.get(indexedConfig.getKey()).getEstimatedBytes();
+        footprint.compactBytes = reports.get(compactConfig.getKey()).getEstimatedBytes();
+    }
+
+    @Benchmark
+    public String typesafeGetString() {
+        return content.getString(nextPath());
+    }
+
+    @Benchmark
+    public String indexedGetString() {
+        return indexedConfig.getString(nextPath());
+    }
+
+    @Benchmark
+    public String compactGetString() {
+        return compactConfig.getString(nextPath());
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2018-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.lomcat.caramel.config;
+
+import com.lomcat.caramel.core.io.FileSystemResource;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ConfigResourceLoader} 合并性能基准：两个资源，后者以驼峰命名覆盖前者的全部串型命名配置项，
+ * 耗时应随配置项数量 {@link #properties} 线性增长。
+ *
+ * @author Kweny
+ * @since 0.0.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConfigResourceLoaderBenchmark {
+
+    @Param({"1000", "2000", "4000", "8000"})
+    private int properties;
+
+    private File directory;
+    private ConfigRegistry registry;
+    private ConfigResource kebabResource;
+    private ConfigResource camelResource;
+
+    @Setup
+    public void setup() throws Exception {
+        directory = File.createTempFile("caramel-benchmark", "");
+        directory.delete();
+        directory.mkdirs();
+
+        File kebabFile = new File(directory, "kebab.properties");
+        File camelFile = new File(directory, "camel.properties");
+        try (PrintWriter kebab = new PrintWriter(kebabFile, StandardCharsets.UTF_8.name());
+             PrintWriter camel = new PrintWriter(camelFile, StandardCharsets.UTF_8.name())) {
+            for (int i = 0; i < properties; i++) {
+                kebab.printf("pool-%d.max-active-%d=%d%n", i % 64, i, i);
+                camel.printf("pool%d.maxActive%d=%d%n", i % 64, i, i + 1);
+            }
+        }
+
+        registry = new ConfigRegistry();
+        kebabResource = ConfigResource.create(new FileSystemResource(kebabFile), 1D);
+        camelResource = ConfigResource.create(new FileSystemResource(camelFile), 2D);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            Arrays.stream(files).forEach(File::delete);
+        }
+        directory.delete();
+    }
+
+    @Benchmark
+    public CaramelConfig mergeKebabCamelCase() {
+        Map<String, ConfigResource> resources = new HashMap<>();
+        resources.put(kebabResource.getDescription(), kebabResource);
+        resources.put(camelResource.getDescription(), camelResource);
+
+        Map<String, List<ConfigResourceBunch>> bunchesMap = new HashMap<>();
+        bunchesMap.put("benchmark", new ArrayList<>(Collections.singletonList(ConfigResourceBunch.create("benchmark", "benchmark", null, resources, null))));
+
+        ConfigResourceLoader.create(registry, bunchesMap, null, null).load();
+        return registry.get("benchmark");
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2018-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.lomcat.caramel.config;
+
+import com.lomcat.caramel.core.io.FileSystemResource;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ConfigRegistry#init()} 冷启动（解析并合并全部资源）与由 {@link PersistentConfigSnapshot} 还原的耗时对比。
+ *
+ * @author Kweny
+ * @since 0.0.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersistentConfigSnapshotBenchmark {
+
+    @Param({"1000"})
+    private int keys;
+
+    @Param({"20"})
+    private int propertiesPerKey;
+
+    private File directory;
+    private File snapshotFile;
+
+    @Setup
+    public void setup() throws IOException {
+        directory = File.createTempFile("caramel-benchmark", "");
+        directory.delete();
+        directory.mkdirs();
+
+        for (int k = 0; k < keys; k++) {
+            try (PrintWriter writer = new PrintWriter(new File(directory, "key-" + k + ".conf"), StandardCharsets.UTF_8.name())) {
+                for (int p = 0; p < propertiesPerKey; p++) {
+                    writer.printf("group-%d.property-%d = \"value-%d-%d\"%n", p % 4, p, k, p);
+                }
+            }
+        }
+
+        snapshotFile = new File(directory, "caramel.snapshot");
+        createRegistry(snapshotFile.getPath()).init();
+    }
+
+    @TearDown
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            Arrays.stream(files).forEach(File::delete);
+        }
+        directory.delete();
+    }
+
+    @Benchmark
+    public Map<String, CaramelConfig> coldInit() {
+        ConfigRegistry registry = createRegistry(null);
+        registry.init();
+        return registry.getAll();
+    }
+
+    @Benchmark
+    public Map<String, CaramelConfig> snapshotInit() {
+        ConfigRegistry registry = createRegistry(snapshotFile.getPath());
+        registry.init();
+        return registry.getAll();
+    }
+
+    private ConfigRegistry createRegistry(String snapshot) {
+        ConfigRegistry registry = new ConfigRegistry();
+        registry.setEnabled(true);
+        registry.setSnapshotFile(snapshot);
+        registry.setLocators(new ArrayList<>(Collections.singletonList(this::locate)));
+        return registry;
+    }
+
+    private Map<String, List<ConfigResourceBunch>> locate() {
+        Map<String, List<ConfigResourceBunch>> bunchesMap = new HashMap<>();
+        for (int k = 0; k < keys; k++) {
+            String key = "key-" + k;
+            try {
+                ConfigResource resource = ConfigResource.create(new FileSystemResource(new File(directory, key + ".conf")), 1D);
+                bunchesMap.put(key, new ArrayList<>(Collections.singletonList(
+                        ConfigResourceBunch.create(key, key, null, Collections.singletonMap(resource.getDescription(), resource), null))));
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return bunchesMap;
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2018-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.lomcat.caramel.config;
+
+import com.lomcat.caramel.config.exception.ConfigPropertyException;
+
+/**
+ * 布尔类型的实时属性，见 {@link ConfigProperty}
+ *
+ * @author Kweny
+ * @since 0.0.1
+ */
+public final class BooleanProperty extends ConfigProperty {
+
+    private final boolean defaultValue;
+    private volatile boolean value;
+
+    BooleanProperty(String key, String path, boolean defaultValue, boolean defaultable) {
+        super(key, path, defaultable);
+        this.defaultValue = defaultValue;
+        this.value = defaultValue;
+    }
+
+    @Override
+    void update(ConfigPropertyIndex.Property property) {
+        if (property != null) {
+            this.value = property.booleanValue();
+        } else if (isDefaultable()) {
+            this.value = this.defaultValue;
+        } else {
+            throw new ConfigPropertyException(String.format("[Caramel.Config] No property '%s' found in config '%s'", getPath(), getKey()));
+        }
+    }
+
+    @Override
+    Identity identity() {
+        return new Identity(BooleanProperty.class, getPath(), isDefaultable(), this.defaultValue);
+    }
+
+    /**
+     * @return 当前值
+     */
+    public boolean get() {
+        return this.value;
+    }
+
+    @Override
+    public String toString() {
+        return getKey() + "/" + getPath() + "=" + this.value;
+    }
+}
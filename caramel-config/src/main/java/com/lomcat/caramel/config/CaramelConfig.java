@@ -16,33 +16,321 @@
 
 package com.lomcat.caramel.config;
 
+import com.lomcat.caramel.config.exception.ConfigPropertyException;
 import com.typesafe.config.Config;
+import com.typesafe.config.ConfigValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 
 /**
  * <h3>Caramel 配置数据</h3>
  *
+ * <p>
+ *     配置数据以不可变的 {@link CaramelConfigSnapshot} 形式发布，当前快照由一个 volatile 引用持有，
+ *     刷新时先完整构建新快照再一次性替换引用，读取方无需加锁即可获得一致的视图，不会看到更新到一半的数据。
+ * </p>
+ *
+ * <p>
+ *     本类的配置项读取方法均读取当前快照，各方法说明见 {@link CaramelConfigSnapshot}；
+ *     需要从同一版本读取多个配置项时，请使用 {@link #snapshot()}。
+ * </p>
+ *
+ * <p>
+ *     对于每次请求都要读取的配置项，可通过 {@link #intProperty(String)} 等方法获取绑定到该配置项的 {@link ConfigProperty}，
+ *     其当前值在每次发布快照时原地更新，读取时只需一次字段读取。
+ * </p>
+ *
  * @author Kweny
  * @since 0.0.1
  */
 public class CaramelConfig {
 
+    private static final Logger logger = LoggerFactory.getLogger(CaramelConfig.class);
+
     private final String key;
-    private Config content;
+    /** 是否开启宽松匹配，见 {@link CaramelConfigSnapshot} */
+    private final boolean relaxed;
+    /** 是否以紧凑模式存储，见 {@link CompactConfigStore} */
+    private final boolean compact;
+    private volatile CaramelConfigSnapshot snapshot;
+    /**
+     * 已绑定的实时属性，结构为 < 属性标识, 属性的弱引用 >，由发布方锁保护。
+     * 调用方不再持有的属性被垃圾回收后，其引用进入 {@link #releasedProperties}，在下次绑定或发布时移除
+     */
+    private final Map<ConfigProperty.Identity, PropertyReference> properties = new HashMap<>();
+    private final ReferenceQueue<ConfigProperty> releasedProperties = new ReferenceQueue<>();
 
     CaramelConfig(String key, Config content) {
+        this(key, content, false, false);
+    }
+
+    CaramelConfig(String key, Config content, boolean relaxed, boolean compact) {
         this.key = key;
-        this.content = content;
+        this.relaxed = relaxed;
+        this.compact = compact;
+        this.snapshot = createSnapshot(1, content, null);
+    }
+
+    private CaramelConfigSnapshot createSnapshot(long version, Config content, ConfigPathTrie pathTrieBasis) {
+        return this.compact
+                ? new CaramelConfigSnapshot(this.key, version, CompactConfigStore.of(this.key, content, this.relaxed))
+                : new CaramelConfigSnapshot(this.key, version, content, this.relaxed, pathTrieBasis);
+    }
+
+    /**
+     * 以新的配置数据发布下一版本的快照，发布方之间互斥，读取方不受影响
+     */
+    synchronized CaramelConfigSnapshot publish(Config newContent) {
+        CaramelConfigSnapshot previous = this.snapshot;
+        CaramelConfigSnapshot next = createSnapshot(previous.getVersion() + 1, newContent, previous.builtPathTrie());
+        this.snapshot = next;
+        expungeReleasedProperties();
+        if (!this.properties.isEmpty()) {
+            this.properties.values().forEach(reference -> {
+                ConfigProperty property = reference.get();
+                if (property == null) {
+                    return;
+                }
+                try {
+                    property.update(next.property(property.getPath()));
+                } catch (ConfigPropertyException e) {
+                    logger.warn("[Caramel.Config] Property '{}' in config '{}' keeps its previous value: {}", property.getPath(), this.key, e.getMessage());
+                }
+            });
+        }
+        return next;
     }
 
-    void update(Config newContent) {
-        newContent.entrySet().forEach(entry -> content = content.withValue(entry.getKey(), entry.getValue()));
+    /**
+     * 绑定实时属性，标识相同的属性已存在时返回已存在的属性
+     */
+    @SuppressWarnings("unchecked")
+    private synchronized <T extends ConfigProperty> T bind(T property) {
+        expungeReleasedProperties();
+        ConfigProperty.Identity identity = property.identity();
+        PropertyReference reference = this.properties.get(identity);
+        ConfigProperty existed = reference != null ? reference.get() : null;
+        if (existed != null) {
+            return (T) existed;
+        }
+        property.update(this.snapshot.property(property.getPath()));
+        this.properties.put(identity, new PropertyReference(identity, property, this.releasedProperties));
+        return property;
+    }
+
+    /**
+     * 移除已被垃圾回收的属性，同一标识已重新绑定新属性时不移除
+     */
+    private void expungeReleasedProperties() {
+        Reference<? extends ConfigProperty> released;
+        while ((released = this.releasedProperties.poll()) != null) {
+            PropertyReference reference = (PropertyReference) released;
+            this.properties.remove(reference.identity, reference);
+        }
+    }
+
+    synchronized void update(Config newContent) {
+        Config content = this.snapshot.content();
+        for (Map.Entry<String, ConfigValue> entry : newContent.entrySet()) {
+            content = content.withValue(entry.getKey(), entry.getValue());
+        }
+        publish(content);
     }
 
     Config content() {
-        return this.content;
+        return this.snapshot.content();
+    }
+
+    /**
+     * 获取当前快照
+     *
+     * @return 当前版本的 {@link CaramelConfigSnapshot}
+     */
+    public CaramelConfigSnapshot snapshot() {
+        return this.snapshot;
+    }
+
+    /**
+     * @return 当前快照的版本号
+     */
+    public long getVersion() {
+        return this.snapshot.getVersion();
     }
 
     public String getKey() {
         return this.key;
     }
-}
\ No newline at end of file
+
+    /**
+     * @return 是否开启宽松匹配，开启时配置项读取忽略分隔符和大小写
+     */
+    public boolean isRelaxed() {
+        return this.relaxed;
+    }
+
+    /**
+     * @return 是否以紧凑模式存储
+     */
+    public boolean isCompact() {
+        return this.compact;
+    }
+
+    /**
+     * 获取绑定到指定配置项的整数属性
+     *
+     * @param path 配置项路径
+     * @return 实时属性
+     * @throws ConfigPropertyException 配置项当前不存在或无法转换为整数
+     */
+    public IntProperty intProperty(String path) {
+        return bind(new IntProperty(this.key, path, 0, false));
+    }
+
+    /**
+     * 获取绑定到指定配置项的整数属性，配置项不存在时取默认值
+     *
+     * @param path 配置项路径
+     * @param defaultValue 默认值
+     * @return 实时属性
+     * @throws ConfigPropertyException 配置项无法转换为整数
+     */
+    public IntProperty intProperty(String path, int defaultValue) {
+        return bind(new IntProperty(this.key, path, defaultValue, true));
+    }
+
+    public LongProperty longProperty(String path) {
+        return bind(new LongProperty(this.key, path, 0L, false));
+    }
+
+    public LongProperty longProperty(String path, long defaultValue) {
+        return bind(new LongProperty(this.key, path, defaultValue, true));
+    }
+
+    public BooleanProperty booleanProperty(String path) {
+        return bind(new BooleanProperty(this.key, path, false, false));
+    }
+
+    public BooleanProperty booleanProperty(String path, boolean defaultValue) {
+        return bind(new BooleanProperty(this.key, path, defaultValue, true));
+    }
+
+    public DurationProperty durationProperty(String path) {
+        return bind(new DurationProperty(this.key, path, 0L, false));
+    }
+
+    public DurationProperty durationProperty(String path, Duration defaultValue) {
+        return bind(new DurationProperty(this.key, path, defaultValue.toNanos(), true));
+    }
+
+    public StringProperty stringProperty(String path) {
+        return bind(new StringProperty(this.key, path, null, false));
+    }
+
+    public StringProperty stringProperty(String path, String defaultValue) {
+        return bind(new StringProperty(this.key, path, defaultValue, true));
+    }
+
+    public Map<String, Object> subtree(String prefix) {
+        return this.snapshot.subtree(prefix);
+    }
+
+    public Set<String> keysUnder(String prefix) {
+        return this.snapshot.keysUnder(prefix);
+    }
+
+    public void forEachUnder(String prefix, BiConsumer<String, Object> visitor) {
+        this.snapshot.forEachUnder(prefix, visitor);
+    }
+
+    public boolean hasPath(String path) {
+        return this.snapshot.hasPath(path);
+    }
+
+    public String getString(String path) {
+        return this.snapshot.getString(path);
+    }
+
+    public String getString(String path, String defaultValue) {
+        return this.snapshot.getString(path, defaultValue);
+    }
+
+    public int getInt(String path) {
+        return this.snapshot.getInt(path);
+    }
+
+    public int getInt(String path, int defaultValue) {
+        return this.snapshot.getInt(path, defaultValue);
+    }
+
+    public long getLong(String path) {
+        return this.snapshot.getLong(path);
+    }
+
+    public long getLong(String path, long defaultValue) {
+        return this.snapshot.getLong(path, defaultValue);
+    }
+
+    public double getDouble(String path) {
+        return this.snapshot.getDouble(path);
+    }
+
+    public boolean getBoolean(String path) {
+        return this.snapshot.getBoolean(path);
+    }
+
+    public boolean getBoolean(String path, boolean defaultValue) {
+        return this.snapshot.getBoolean(path, defaultValue);
+    }
+
+    public Duration getDuration(String path) {
+        return this.snapshot.getDuration(path);
+    }
+
+    public long getDuration(String path, TimeUnit unit) {
+        return this.snapshot.getDuration(path, unit);
+    }
+
+    public long getBytes(String path) {
+        return this.snapshot.getBytes(path);
+    }
+
+    public List<String> getStringList(String path) {
+        return this.snapshot.getStringList(path);
+    }
+
+    public List<Integer> getIntList(String path) {
+        return this.snapshot.getIntList(path);
+    }
+
+    public List<Long> getLongList(String path) {
+        return this.snapshot.getLongList(path);
+    }
+
+    public List<Double> getDoubleList(String path) {
+        return this.snapshot.getDoubleList(path);
+    }
+
+    public List<Boolean> getBooleanList(String path) {
+        return this.snapshot.getBooleanList(path);
+    }
+
+    private static class PropertyReference extends WeakReference<ConfigProperty> {
+        private final ConfigProperty.Identity identity;
+
+        private PropertyReference(ConfigProperty.Identity identity, ConfigProperty property, ReferenceQueue<ConfigProperty> queue) {
+            super(property, queue);
+            this.identity = identity;
+        }
+    }
+}
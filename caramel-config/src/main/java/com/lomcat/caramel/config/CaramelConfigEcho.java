@@ -17,12 +17,27 @@
 package com.lomcat.caramel.config;
 
 import com.lomcat.caramel.core.assist.StringAide;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigObject;
+import com.typesafe.config.ConfigUtil;
+import com.typesafe.config.ConfigValue;
+import com.typesafe.config.ConfigValueType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
 /**
  * <P>Caramel 加载的配置文件内容打印</P>
  *
+ * <p>
+ *     加载过程以结构化事件的形式发送至 {@link Session}：每个 key 通过 {@link #open(String)} 开启一个会话，
+ *     未启用打印时返回 null，加载器将跳过全部打印相关的处理；各事件仅在其粒度启用时才进行格式化。
+ *     每个事件即时格式化为一行输出，可继承此类并重写 {@link #open(String)} 提供自定义的 {@link Session}，或重写 {@link #echo(String)} 改变输出目标。
+ * </p>
+ *
  * @author Kweny
  * @since 0.0.1
  */
@@ -80,6 +95,16 @@ public class CaramelConfigEcho {
         this.masking = masking;
     }
 
+    /**
+     * 开启指定 key 的打印会话
+     *
+     * @param key 配置数据的 key
+     * @return 打印会话，未启用打印时返回 null
+     */
+    public Session open(String key) {
+        return isEchoEnabled() ? new Session(this, key) : null;
+    }
+
     public void echo(String text) {
         logger.info(text);
     }
@@ -96,4 +121,104 @@ public class CaramelConfigEcho {
             this.contentEnabled |= StringAide.equalsIgnoreCase(section, GRANULARITY_CONTENT);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * 单个 key 的打印会话，加载过程中的每个事件在发生时即格式化为一行并发送至 {@link #echo(String)}，不在内存中拼接整个 key 的内容。
+     * 并行加载时不同 key 的 summary、track 行可能交错，但同一 key 的 content 在输出期间独占输出目标，保证其在日志中连续
+     */
+    public static class Session {
+        private final CaramelConfigEcho echo;
+        private final String key;
+
+        protected Session(CaramelConfigEcho echo, String key) {
+            this.echo = echo;
+            this.key = key;
+            echo.echo("[Caramel.ResourceLoader] Echo config resource loading process for key '" + key + "'...");
+        }
+
+        public String getKey() {
+            return this.key;
+        }
+
+        /**
+         * 开始从资源加载配置数据
+         */
+        public void summary() {
+            if (echo.isSummaryEnabled()) {
+                echo.echo("\tLoad CaramelConfig(" + key + ") from resources...");
+            }
+        }
+
+        /**
+         * 加载一个配置资源
+         */
+        public void resource(String bunchKey, ConfigResource resource) {
+            if (echo.isSummaryEnabled()) {
+                echo.echo("\t\tCaramelConfig(" + bunchKey + ") << " + resource);
+            }
+        }
+
+        /**
+         * 首个资源的全部配置项作为新配置项加入
+         */
+        public void newProperties(String bunchKey, Config config) {
+            if (echo.isTrackEnabled()) {
+                config.entrySet().forEach(entry -> property(bunchKey, entry.getKey(), entry.getValue(), null, null));
+            }
+        }
+
+        /**
+         * 加入或覆盖一个配置项
+         *
+         * @param oldName 被覆盖的配置项名称，新加入时为 null
+         * @param oldValue 被覆盖的配置项值，新加入时为 null
+         */
+        public void property(String bunchKey, String name, ConfigValue value, String oldName, ConfigValue oldValue) {
+            if (echo.isTrackEnabled()) {
+                StringBuilder builder = new StringBuilder(64);
+                builder.append(oldName != null ? "\t\t\tRenew" : "\t\t\tNew").append(" property into CaramelConfig(").append(bunchKey).append(") << ")
+                        .append(name).append('=').append(value.unwrapped());
+                if (oldName != null) {
+                    builder.append(" (Overwritten: ").append(oldName).append('=').append(oldValue.unwrapped()).append(')');
+                }
+                echo.echo(builder.toString());
+            }
+        }
+
+        /**
+         * 加载完成的配置数据内容，逐级遍历并逐行输出，不额外构建全部配置项的列表。
+         * 同级按 "名称=" 或 "名称." 排序，与按完整的 "路径=值" 行整体排序的顺序一致
+         */
+        public void content(CaramelConfig caramelConfig) {
+            if (echo.isContentEnabled() && caramelConfig != null && caramelConfig.content() != null) {
+                synchronized (echo) {
+                    echo.echo("\tContent of CaramelConfig(" + caramelConfig.getKey() + "):");
+                    echoContent(new ArrayList<>(), caramelConfig.content().root());
+                }
+            }
+        }
+
+        /**
+         * 结束会话，各事件均已输出，默认无需处理
+         */
+        public void close() {
+        }
+
+        private void echoContent(List<String> parents, ConfigObject object) {
+            // 同一子树的全部行都以 "名称." 或 "名称=" 开头，因此按此前缀排序同级即可得到整体排序的结果，且各子树的行保持连续
+            List<String[]> children = new ArrayList<>(object.size());
+            object.forEach((name, value) -> children.add(new String[]{name, ConfigUtil.joinPath(name) + (value instanceof ConfigObject ? '.' : '=')}));
+            children.sort(Comparator.comparing(child -> child[1]));
+            for (String[] child : children) {
+                ConfigValue value = object.get(child[0]);
+                parents.add(child[0]);
+                if (value instanceof ConfigObject) {
+                    echoContent(parents, (ConfigObject) value);
+                } else if (value.valueType() != ConfigValueType.NULL) {
+                    echo.echo("\t\t" + ConfigUtil.joinPath(parents) + '=' + value.unwrapped());
+                }
+                parents.remove(parents.size() - 1);
+            }
+        }
+    }
+}
@@ -0,0 +1,303 @@
+/*
+ * Copyright 2018-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.lomcat.caramel.config;
+
+import com.lomcat.caramel.config.exception.ConfigPropertyException;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigValue;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * <h3>Caramel 配置数据的不可变快照</h3>
+ *
+ * <p>
+ *     {@link CaramelConfig} 的每一次发布（加载、刷新或更新）都产生一个新的快照，版本号单调递增。
+ *     快照一经创建便不再改变，一次请求中需要读取多个配置项时，应先通过 {@link CaramelConfig#snapshot()} 获取快照，
+ *     再从同一快照中读取，以保证读取到的配置项来自同一版本。
+ * </p>
+ *
+ * <p>
+ *     配置项通过叶子路径（如 {@code druid.max-active}）读取，由快照的扁平索引直接提供，类型转换规则与 {@link Config} 的同名方法一致。
+ *     配置项不存在（或值为 null）以及无法转换为所需类型时，抛出 {@link ConfigPropertyException}。
+ *     开启宽松匹配时，精确路径未命中的配置项还将忽略分隔符和大小写再匹配一次，如 {@code maxActive} 可读取 {@code max-active}。
+ * </p>
+ *
+ * <p>
+ *     {@link #subtree(String)}、{@link #keysUnder(String)} 和 {@link #forEachUnder(String, BiConsumer)} 按路径前缀查询子树，
+ *     由快照的路径前缀树提供，耗时与结果规模成正比。
+ * </p>
+ *
+ * <p>
+ *     以紧凑模式存储的 key（见 {@link ConfigRegistry#setCompactKeys(Set)}），快照不保留配置树、索引和前缀树，
+ *     全部读取均由 {@link CompactConfigStore} 提供，读取方法及其语义不变。
+ * </p>
+ *
+ * @author Kweny
+ * @since 0.0.1
+ */
+public final class CaramelConfigSnapshot {
+
+    private final String key;
+    private final long version;
+    private final Config content;
+    /** 紧凑存储，非紧凑模式时为 null */
+    private final CompactConfigStore compactStore;
+    /** 是否开启宽松匹配 */
+    private final boolean relaxed;
+    /** 扁平配置项索引，首次读取时构建，并发重复构建的结果等价 */
+    private volatile ConfigPropertyIndex propertyIndex;
+    /** 路径前缀树，首次查询时构建 */
+    private volatile ConfigPathTrie pathTrie;
+    /** 上一快照已构建的路径前缀树，用于复用未变化的子树，本快照的前缀树构建后释放 */
+    private volatile ConfigPathTrie pathTrieBasis;
+
+    CaramelConfigSnapshot(String key, long version, Config content, boolean relaxed) {
+        this(key, version, content, relaxed, null);
+    }
+
+    CaramelConfigSnapshot(String key, long version, Config content, boolean relaxed, ConfigPathTrie pathTrieBasis) {
+        this.key = key;
+        this.version = version;
+        this.content = content;
+        this.compactStore = null;
+        this.relaxed = relaxed;
+        this.pathTrieBasis = pathTrieBasis;
+    }
+
+    CaramelConfigSnapshot(String key, long version, CompactConfigStore compactStore) {
+        this.key = key;
+        this.version = version;
+        this.content = null;
+        this.compactStore = compactStore;
+        this.relaxed = false;
+    }
+
+    /**
+     * @return 配置数据；紧凑模式下每次调用都由紧凑存储还原，仅用于 echo、持久化快照等非读取场景
+     */
+    Config content() {
+        return this.compactStore != null ? this.compactStore.toConfig() : this.content;
+    }
+
+    /**
+     * @return 紧凑存储，非紧凑模式时返回 null
+     */
+    CompactConfigStore compactStore() {
+        return this.compactStore;
+    }
+
+    /**
+     * 查找配置项
+     *
+     * @param path 配置项路径
+     * @return 配置项，不存在（或值为 null）时返回 null
+     */
+    ConfigPropertyIndex.Property property(String path) {
+        return this.compactStore != null ? this.compactStore.find(path) : propertyIndex().find(path);
+    }
+
+    private ConfigPropertyIndex.Property requiredProperty(String path) {
+        ConfigPropertyIndex.Property property = property(path);
+        if (property == null) {
+            throw new ConfigPropertyException(String.format("[Caramel.Config] No property '%s' found in config '%s'", path, this.key));
+        }
+        return property;
+    }
+
+    /**
+     * 按路径顺序遍历指定前缀下的全部叶子配置项
+     */
+    private void forEachLeafUnder(String prefix, BiConsumer<String, ConfigValue> visitor) {
+        if (this.compactStore != null) {
+            this.compactStore.forEachUnder(prefix, visitor);
+            return;
+        }
+        ConfigPathTrie.Node node = pathTrie().find(prefix);
+        if (node != null) {
+            node.forEachLeaf(leaf -> visitor.accept(node.relativePath(leaf), leaf.value()));
+        }
+    }
+
+    ConfigPropertyIndex propertyIndex() {
+        ConfigPropertyIndex index = this.propertyIndex;
+        if (index == null) {
+            this.propertyIndex = index = new ConfigPropertyIndex(this.key, this.content, this.relaxed);
+        }
+        return index;
+    }
+
+    /**
+     * @return 已构建的路径前缀树，尚未构建时返回 null
+     */
+    ConfigPathTrie builtPathTrie() {
+        return this.pathTrie;
+    }
+
+    ConfigPathTrie pathTrie() {
+        ConfigPathTrie trie = this.pathTrie;
+        if (trie == null) {
+            this.pathTrie = trie = new ConfigPathTrie(this.content, this.pathTrieBasis);
+            this.pathTrieBasis = null;
+        }
+        return trie;
+    }
+
+    /**
+     * 获取指定前缀下的全部叶子配置项
+     *
+     * @param prefix 路径前缀（如 {@code spring.redis.lettuce.pool}），空字符串表示全部配置项
+     * @return 按路径排序的不可变 {@link Map}，结构为 < 相对于前缀的路径, 配置项的值 >；前缀不存在或为叶子配置项时返回空 {@link Map}
+     */
+    public Map<String, Object> subtree(String prefix) {
+        Map<String, Object> subtree = new LinkedHashMap<>();
+        forEachLeafUnder(prefix, (path, value) -> subtree.put(path, value.unwrapped()));
+        return Collections.unmodifiableMap(subtree);
+    }
+
+    /**
+     * 获取指定前缀下的全部叶子配置项的路径
+     *
+     * @param prefix 路径前缀，空字符串表示全部配置项
+     * @return 按路径排序的不可变 {@link Set}，元素为相对于前缀的路径；前缀不存在或为叶子配置项时返回空 {@link Set}
+     */
+    public Set<String> keysUnder(String prefix) {
+        Set<String> keys = new LinkedHashSet<>();
+        forEachLeafUnder(prefix, (path, value) -> keys.add(path));
+        return Collections.unmodifiableSet(keys);
+    }
+
+    /**
+     * 按路径顺序遍历指定前缀下的全部叶子配置项
+     *
+     * @param prefix 路径前缀，空字符串表示全部配置项
+     * @param visitor 访问器，参数为相对于前缀的路径和配置项的值
+     */
+    public void forEachUnder(String prefix, BiConsumer<String, Object> visitor) {
+        forEachLeafUnder(prefix, (path, value) -> visitor.accept(path, value.unwrapped()));
+    }
+
+    /**
+     * @param path 配置项路径
+     * @return 是否存在值不为 null 的叶子配置项
+     */
+    public boolean hasPath(String path) {
+        return property(path) != null;
+    }
+
+    public String getString(String path) {
+        return requiredProperty(path).stringValue();
+    }
+
+    public String getString(String path, String defaultValue) {
+        ConfigPropertyIndex.Property property = property(path);
+        return property != null ? property.stringValue() : defaultValue;
+    }
+
+    public int getInt(String path) {
+        return requiredProperty(path).intValue();
+    }
+
+    public int getInt(String path, int defaultValue) {
+        ConfigPropertyIndex.Property property = property(path);
+        return property != null ? property.intValue() : defaultValue;
+    }
+
+    public long getLong(String path) {
+        return requiredProperty(path).longValue();
+    }
+
+    public long getLong(String path, long defaultValue) {
+        ConfigPropertyIndex.Property property = property(path);
+        return property != null ? property.longValue() : defaultValue;
+    }
+
+    public double getDouble(String path) {
+        return requiredProperty(path).doubleValue();
+    }
+
+    public boolean getBoolean(String path) {
+        return requiredProperty(path).booleanValue();
+    }
+
+    public boolean getBoolean(String path, boolean defaultValue) {
+        ConfigPropertyIndex.Property property = property(path);
+        return property != null ? property.booleanValue() : defaultValue;
+    }
+
+    /**
+     * @param path 配置项路径
+     * @return 时长，整数值按毫秒处理，字符串按 HOCON 时长格式（如 30s、500ms）解析
+     */
+    public Duration getDuration(String path) {
+        return requiredProperty(path).durationValue();
+    }
+
+    public long getDuration(String path, TimeUnit unit) {
+        return unit.convert(getDuration(path).toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param path 配置项路径
+     * @return 字节数，整数值按字节处理，字符串按 HOCON 容量格式（如 512KB、10M）解析
+     */
+    public long getBytes(String path) {
+        return requiredProperty(path).bytesValue();
+    }
+
+    public List<String> getStringList(String path) {
+        return requiredProperty(path).convert(config -> config.getStringList("value"));
+    }
+
+    public List<Integer> getIntList(String path) {
+        return requiredProperty(path).convert(config -> config.getIntList("value"));
+    }
+
+    public List<Long> getLongList(String path) {
+        return requiredProperty(path).convert(config -> config.getLongList("value"));
+    }
+
+    public List<Double> getDoubleList(String path) {
+        return requiredProperty(path).convert(config -> config.getDoubleList("value"));
+    }
+
+    public List<Boolean> getBooleanList(String path) {
+        return requiredProperty(path).convert(config -> config.getBooleanList("value"));
+    }
+
+    /**
+     * @return 配置数据标识
+     */
+    public String getKey() {
+        return this.key;
+    }
+
+    /**
+     * @return 快照版本号，同一 {@link CaramelConfig} 的快照版本号从 1 开始单调递增
+     */
+    public long getVersion() {
+        return this.version;
+    }
+
+    @Override
+    public String toString() {
+        return "CaramelConfigSnapshot{key='" + this.key + "', version=" + this.version + "}";
+    }
+}
@@ -0,0 +1,368 @@
+/*
+ * Copyright 2018-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.lomcat.caramel.config;
+
+import com.lomcat.caramel.config.exception.ConfigPropertyException;
+import com.lomcat.caramel.core.assist.NamingConvention;
+import com.typesafe.config.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.BiConsumer;
+
+/**
+ * <p>
+ *     紧凑存储的配置数据，用于配置项数量极大（如数十万项的特性开关、路由表）的 key。
+ * </p>
+ *
+ * <p>
+ *     全部叶子配置项按路径（UTF-8 字节序）排序后，路径和值分别连续写入两个字节数组，仅以 int 数组记录各项的偏移量，
+ *     值的编码与 {@link PersistentConfigSnapshot} 相同。精确查找通过开放寻址的 int 散列表完成，通常一次探测即可命中；
+ *     前缀查询通过二分查找定位范围后顺序扫描。相比 {@link Config} 对象图，每个配置项只占用其路径和值的字节数及少量偏移量，
+ *     且对象数量与配置项数量无关，不会给 GC 带来额外压力。
+ * </p>
+ *
+ * <p>
+ *     读取时按需解码，因此单次读取比扁平索引多一次解码的开销。值为 null 的配置项和空对象不会被保存。
+ * </p>
+ *
+ * @author Kweny
+ * @since 0.0.1
+ */
+class CompactConfigStore {
+
+    private final String key;
+    private final int size;
+    /** 全部路径的 UTF-8 字节，第 i 项位于 [pathOffsets[i], pathOffsets[i + 1]) */
+    private final byte[] paths;
+    private final int[] pathOffsets;
+    /** 全部值的编码字节，第 i 项位于 [valueOffsets[i], valueOffsets[i + 1]) */
+    private final byte[] values;
+    private final int[] valueOffsets;
+    /** 精确查找散列表，每个槽位占两个 int：路径的散列值、配置项序号 + 1（0 表示空槽） */
+    private final int[] table;
+    /** 宽松查找散列表，结构同上，宽松比较名称冲突的槽位序号取负值；未开启宽松匹配时为 null */
+    private final int[] relaxedTable;
+
+    private CompactConfigStore(String key, int size, byte[] paths, int[] pathOffsets, byte[] values, int[] valueOffsets, int[] table, int[] relaxedTable) {
+        this.key = key;
+        this.size = size;
+        this.paths = paths;
+        this.pathOffsets = pathOffsets;
+        this.values = values;
+        this.valueOffsets = valueOffsets;
+        this.table = table;
+        this.relaxedTable = relaxedTable;
+    }
+
+    /**
+     * 由配置数据构建紧凑存储
+     *
+     * @param key 配置数据标识
+     * @param content 配置数据
+     * @param relaxed 是否开启宽松匹配
+     * @return 紧凑存储
+     */
+    static CompactConfigStore of(String key, Config content, boolean relaxed) {
+        List<Map.Entry<String, ConfigValue>> entries = new ArrayList<>(content != null ? content.entrySet() : Collections.emptySet());
+        int size = entries.size();
+        byte[][] pathBytes = new byte[size][];
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            pathBytes[i] = entries.get(i).getKey().getBytes(StandardCharsets.UTF_8);
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> compare(pathBytes[a], 0, pathBytes[a].length, pathBytes[b]));
+
+        int[] pathOffsets = new int[size + 1];
+        int[] valueOffsets = new int[size + 1];
+        ByteArrayOutputStream pathBuffer = new ByteArrayOutputStream();
+        ByteArrayOutputStream valueBuffer = new ByteArrayOutputStream();
+        try (DataOutputStream valueOutput = new DataOutputStream(valueBuffer)) {
+            for (int i = 0; i < size; i++) {
+                byte[] bytes = pathBytes[order[i]];
+                pathBuffer.write(bytes, 0, bytes.length);
+                pathOffsets[i + 1] = pathBuffer.size();
+                PersistentConfigSnapshot.writeValue(valueOutput, entries.get(order[i]).getValue());
+                valueOutput.flush();
+                valueOffsets[i + 1] = valueBuffer.size();
+            }
+        } catch (IOException e) {
+            // 写入内存缓冲区不会发生 IO 异常
+            throw new UncheckedIOException(e);
+        }
+
+        int[] table = new int[capacity(size) * 2];
+        for (int i = 0; i < size; i++) {
+            put(table, entries.get(order[i]).getKey().hashCode(), i + 1);
+        }
+
+        int[] relaxedTable = null;
+        if (relaxed) {
+            Map<String, Integer> relaxedNames = new HashMap<>(size * 4 / 3 + 1);
+            for (int i = 0; i < size; i++) {
+                String relaxedName = NamingConvention.RELAXED.normalize(entries.get(order[i]).getKey());
+                Integer existed = relaxedNames.putIfAbsent(relaxedName, i + 1);
+                if (existed != null && existed > 0) {
+                    relaxedNames.put(relaxedName, -existed);
+                }
+            }
+            relaxedTable = new int[capacity(relaxedNames.size()) * 2];
+            for (Map.Entry<String, Integer> entry : relaxedNames.entrySet()) {
+                put(relaxedTable, entry.getKey().hashCode(), entry.getValue());
+            }
+        }
+
+        return new CompactConfigStore(key, size, pathBuffer.toByteArray(), pathOffsets, valueBuffer.toByteArray(), valueOffsets, table, relaxedTable);
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * @return 估算占用的字节数
+     */
+    long byteSize() {
+        long arrays = (long) this.paths.length + this.values.length
+                + 4L * (this.pathOffsets.length + this.valueOffsets.length + this.table.length + (this.relaxedTable != null ? this.relaxedTable.length : 0));
+        return 48 + 6 * 16 + arrays;
+    }
+
+    /**
+     * 查找配置项
+     *
+     * @param path 配置项路径
+     * @return 配置项，不存在时返回 null
+     */
+    ConfigPropertyIndex.Property find(String path) {
+        int index = indexOf(path);
+        if (index >= 0) {
+            return new ConfigPropertyIndex.Property(this.key, path, valueAt(index));
+        }
+        if (this.relaxedTable != null) {
+            index = relaxedIndexOf(NamingConvention.RELAXED.normalize(path));
+            if (index >= 0) {
+                return new ConfigPropertyIndex.Property(this.key, pathAt(index), valueAt(index));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 按路径顺序遍历指定前缀下的全部叶子配置项
+     *
+     * @param prefix 路径前缀，空字符串表示全部配置项，允许以 '.' 结尾
+     * @param visitor 访问器，参数为相对于前缀的路径和配置项的值
+     */
+    void forEachUnder(String prefix, BiConsumer<String, ConfigValue> visitor) {
+        byte[] prefixBytes = prefixBytes(prefix);
+        for (int i = lowerBound(prefixBytes); i < this.size && startsWith(i, prefixBytes); i++) {
+            int offset = this.pathOffsets[i] + prefixBytes.length;
+            visitor.accept(new String(this.paths, offset, this.pathOffsets[i + 1] - offset, StandardCharsets.UTF_8), valueAt(i));
+        }
+    }
+
+    /**
+     * 还原为 {@link Config}，用于 echo、持久化快照等需要完整配置树的场景
+     */
+    Config toConfig() {
+        Map<String, Object> root = new HashMap<>();
+        for (int i = 0; i < this.size; i++) {
+            List<String> elements = ConfigUtil.splitPath(pathAt(i));
+            Map<String, Object> node = root;
+            for (int j = 0; j < elements.size() - 1; j++) {
+                node = cast(node.computeIfAbsent(elements.get(j), name -> new HashMap<String, Object>()));
+            }
+            node.put(elements.get(elements.size() - 1), valueAt(i));
+        }
+        return ConfigValueFactory.fromMap(root).toConfig();
+    }
+
+    private int indexOf(String path) {
+        int hash = path.hashCode();
+        int mask = this.table.length / 2 - 1;
+        for (int slot = spread(hash) & mask; this.table[slot * 2 + 1] != 0; slot = (slot + 1) & mask) {
+            if (this.table[slot * 2] == hash) {
+                int index = this.table[slot * 2 + 1] - 1;
+                if (pathEquals(index, path)) {
+                    return index;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private int relaxedIndexOf(String relaxedName) {
+        int hash = relaxedName.hashCode();
+        int mask = this.relaxedTable.length / 2 - 1;
+        for (int slot = spread(hash) & mask; this.relaxedTable[slot * 2 + 1] != 0; slot = (slot + 1) & mask) {
+            if (this.relaxedTable[slot * 2] == hash) {
+                int entry = this.relaxedTable[slot * 2 + 1];
+                int index = Math.abs(entry) - 1;
+                if (NamingConvention.RELAXED.normalize(pathAt(index)).equals(relaxedName)) {
+                    // 宽松比较名称冲突时无法确定匹配项
+                    return entry > 0 ? index : -1;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private String pathAt(int index) {
+        return new String(this.paths, this.pathOffsets[index], this.pathOffsets[index + 1] - this.pathOffsets[index], StandardCharsets.UTF_8);
+    }
+
+    private ConfigValue valueAt(int index) {
+        int offset = this.valueOffsets[index];
+        byte[] bytes = this.values;
+        // 标量直接由字节数组解码，列表和对象借助 DataInputStream 解码
+        switch (bytes[offset]) {
+            case PersistentConfigSnapshot.TYPE_STRING:
+                return ConfigValueFactory.fromAnyRef(new String(bytes, offset + 5, readInt(bytes, offset + 1), StandardCharsets.UTF_8));
+            case PersistentConfigSnapshot.TYPE_INT:
+                return ConfigValueFactory.fromAnyRef(readInt(bytes, offset + 1));
+            case PersistentConfigSnapshot.TYPE_LONG:
+                return ConfigValueFactory.fromAnyRef(readLong(bytes, offset + 1));
+            case PersistentConfigSnapshot.TYPE_DOUBLE:
+                return ConfigValueFactory.fromAnyRef(Double.longBitsToDouble(readLong(bytes, offset + 1)));
+            case PersistentConfigSnapshot.TYPE_BOOLEAN:
+                return ConfigValueFactory.fromAnyRef(bytes[offset + 1] != 0);
+            default:
+                try {
+                    return PersistentConfigSnapshot.readValue(new DataInputStream(
+                            new ByteArrayInputStream(bytes, offset, this.valueOffsets[index + 1] - offset)));
+                } catch (IOException e) {
+                    throw new ConfigPropertyException(String.format("[Caramel.Config] Error decoding property '%s' in config '%s'", pathAt(index), this.key), e);
+                }
+        }
+    }
+
+    private boolean pathEquals(int index, String path) {
+        int offset = this.pathOffsets[index];
+        int length = this.pathOffsets[index + 1] - offset;
+        if (length != path.length()) {
+            // 非 ASCII 路径的字节数与字符数不同，按 UTF-8 字节比较
+            return length > path.length() && Arrays.equals(Arrays.copyOfRange(this.paths, offset, offset + length), path.getBytes(StandardCharsets.UTF_8));
+        }
+        for (int i = 0; i < length; i++) {
+            char chr = path.charAt(i);
+            if (chr >= 0x80) {
+                return Arrays.equals(Arrays.copyOfRange(this.paths, offset, offset + length), path.getBytes(StandardCharsets.UTF_8));
+            }
+            if (this.paths[offset + i] != chr) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private byte[] prefixBytes(String prefix) {
+        if (prefix.isEmpty()) {
+            return new byte[0];
+        }
+        if (prefix.endsWith(".")) {
+            prefix = prefix.substring(0, prefix.length() - 1);
+        }
+        try {
+            // 统一为与存储路径相同的表示形式
+            return (ConfigUtil.joinPath(ConfigUtil.splitPath(prefix)) + ".").getBytes(StandardCharsets.UTF_8);
+        } catch (ConfigException e) {
+            throw new ConfigPropertyException(String.format("[Caramel.Config] Invalid path prefix '%s': %s", prefix, e.getMessage()), e);
+        }
+    }
+
+    /**
+     * @return 第一个路径不小于 bytes 的配置项序号
+     */
+    private int lowerBound(byte[] bytes) {
+        int low = 0;
+        int high = this.size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compare(this.paths, this.pathOffsets[middle], this.pathOffsets[middle + 1], bytes) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private boolean startsWith(int index, byte[] prefixBytes) {
+        int offset = this.pathOffsets[index];
+        if (this.pathOffsets[index + 1] - offset < prefixBytes.length) {
+            return false;
+        }
+        for (int i = 0; i < prefixBytes.length; i++) {
+            if (this.paths[offset + i] != prefixBytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 按无符号字节序比较 source[from, to) 与 target
+     */
+    private static int compare(byte[] source, int from, int to, byte[] target) {
+        int length = Math.min(to - from, target.length);
+        for (int i = 0; i < length; i++) {
+            int difference = (source[from + i] & 0xFF) - (target[i] & 0xFF);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return (to - from) - target.length;
+    }
+
+    private static int capacity(int size) {
+        int capacity = 2;
+        while (capacity < size * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static void put(int[] table, int hash, int entry) {
+        int mask = table.length / 2 - 1;
+        int slot = spread(hash) & mask;
+        while (table[slot * 2 + 1] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot * 2] = hash;
+        table[slot * 2 + 1] = entry;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xFF) << 24) | ((bytes[offset + 1] & 0xFF) << 16) | ((bytes[offset + 2] & 0xFF) << 8) | (bytes[offset + 3] & 0xFF);
+    }
+
+    private static long readLong(byte[] bytes, int offset) {
+        return ((long) readInt(bytes, offset) << 32) | (readInt(bytes, offset + 4) & 0xFFFFFFFFL);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> cast(Object node) {
+        return (Map<String, Object>) node;
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2018-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.lomcat.caramel.config;
+
+import com.typesafe.config.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ *     单个 key 的配置数据合并器。
+ * </p>
+ *
+ * <p>
+ *     合并过程中所有资源的配置项都写入一棵可变的路径树，结构为 < 路径元素, 子树 {@link Map} 或叶子 {@link ConfigValue} >，
+ *     全部资源合并完成后通过 {@link #build()} 一次性构建最终的 {@link Config}，
+ *     以避免每次覆盖都调用 {@link Config#withValue(String, ConfigValue)} 复制整棵不可变的配置树。
+ * </p>
+ *
+ * <p>
+ *     合并语义与逐项调用 {@link Config#withoutPath(String)}、{@link Config#withValue(String, ConfigValue)} 保持一致：
+ *     叶子路径将覆盖同名子树，子路径将覆盖同名叶子，删除叶子后保留其（可能为空的）父级对象。
+ * </p>
+ *
+ * @author Kweny
+ * @since 0.0.1
+ */
+class ConfigContentMerger {
+
+    private final boolean mapKebabCamelCase;
+    /** 是否需要返回被覆盖的配置项（用于 echo.track），未开启时合并过程不产生额外对象 */
+    private final boolean trackOverwritten;
+
+    /** 首个资源的配置数据，若之后没有发生合并则直接作为结果 */
+    private Config seed;
+    /** 可变路径树，在第一次合并时由 seed 展开 */
+    private Map<String, Object> root;
+    /** 串型-驼峰映射的名称索引，结构为 < 去除分隔符并转小写后的名称, 当前路径树中的实际名称 > */
+    private Map<String, String> normalizedNames;
+
+    ConfigContentMerger(boolean mapKebabCamelCase, boolean trackOverwritten) {
+        this.mapKebabCamelCase = mapKebabCamelCase;
+        this.trackOverwritten = trackOverwritten;
+    }
+
+    boolean isSeeded() {
+        return this.seed != null;
+    }
+
+    void seed(Config config) {
+        this.seed = config;
+        if (this.mapKebabCamelCase) {
+            this.normalizedNames = new HashMap<>();
+            config.entrySet().forEach(entry -> this.normalizedNames.put(normalizeName(entry.getKey()), entry.getKey()));
+        }
+    }
+
+    /**
+     * 将一个配置项合并到路径树中
+     *
+     * @param path 配置项路径
+     * @param value 配置项的值
+     * @return 被覆盖的已存在配置项，若不存在同名配置项或未开启 trackOverwritten 则返回 null
+     */
+    Overwritten merge(String path, ConfigValue value) {
+        if (this.root == null) {
+            this.root = expand(this.seed.root());
+        }
+
+        Overwritten overwritten = null;
+        if (this.mapKebabCamelCase) {
+            // 开启了串型和驼峰命名的映射，通过名称索引查找已存在的同名配置项
+            String normalizedName = normalizeName(path);
+            String indexedName = this.normalizedNames.get(normalizedName);
+            if (indexedName != null) {
+                // 名称索引中的项可能已因其父路径或子路径被覆盖而失效，此处确认其仍为叶子配置项
+                Object existed = find(indexedName);
+                if (existed instanceof ConfigValue && ((ConfigValue) existed).valueType() != ConfigValueType.NULL) {
+                    if (this.trackOverwritten) {
+                        overwritten = new Overwritten(indexedName, (ConfigValue) existed);
+                    }
+                    remove(indexedName);
+                }
+            }
+            this.normalizedNames.put(normalizedName, path);
+        } else if (this.trackOverwritten) {
+            Object existed = find(path);
+            if (existed instanceof Map) {
+                overwritten = new Overwritten(path, toConfigObject(cast(existed)));
+            } else if (existed != null && ((ConfigValue) existed).valueType() != ConfigValueType.NULL) {
+                overwritten = new Overwritten(path, (ConfigValue) existed);
+            }
+        }
+
+        put(path, value);
+        return overwritten;
+    }
+
+    /**
+     * 构建合并后的配置数据
+     */
+    Config build() {
+        return this.root != null ? toConfigObject(this.root).toConfig() : this.seed;
+    }
+
+    private Object find(String path) {
+        List<String> elements = ConfigUtil.splitPath(path);
+        Map<String, Object> node = this.root;
+        for (int i = 0; i < elements.size() - 1; i++) {
+            Object child = node.get(elements.get(i));
+            if (!(child instanceof Map)) {
+                return null;
+            }
+            node = cast(child);
+        }
+        return node.get(elements.get(elements.size() - 1));
+    }
+
+    private void put(String path, ConfigValue value) {
+        List<String> elements = ConfigUtil.splitPath(path);
+        Map<String, Object> node = this.root;
+        for (int i = 0; i < elements.size() - 1; i++) {
+            Object child = node.get(elements.get(i));
+            if (!(child instanceof Map)) {
+                // 不存在或为叶子，以新的对象替换
+                child = new HashMap<String, Object>();
+                node.put(elements.get(i), child);
+            }
+            node = cast(child);
+        }
+        node.put(elements.get(elements.size() - 1), value);
+    }
+
+    private void remove(String path) {
+        List<String> elements = ConfigUtil.splitPath(path);
+        Map<String, Object> node = this.root;
+        for (int i = 0; i < elements.size() - 1; i++) {
+            Object child = node.get(elements.get(i));
+            if (!(child instanceof Map)) {
+                return;
+            }
+            node = cast(child);
+        }
+        node.remove(elements.get(elements.size() - 1));
+    }
+
+    private static Map<String, Object> expand(ConfigObject object) {
+        Map<String, Object> node = new HashMap<>();
+        object.forEach((name, value) -> node.put(name, value instanceof ConfigObject ? expand((ConfigObject) value) : value));
+        return node;
+    }
+
+    private static ConfigObject toConfigObject(Map<String, Object> node) {
+        Map<String, Object> values = new HashMap<>(node.size() * 4 / 3 + 1);
+        node.forEach((name, value) -> values.put(name, value instanceof Map ? toConfigObject(cast(value)) : value));
+        return ConfigValueFactory.fromMap(values);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> cast(Object node) {
+        return (Map<String, Object>) node;
+    }
+
+    /**
+     * 串型-驼峰命名映射的比较名称：去除分隔符并转为小写
+     */
+    private static String normalizeName(String name) {
+        return name.replace("-", "").toLowerCase();
+    }
+
+    /**
+     * 被覆盖的配置项
+     */
+    static class Overwritten {
+        private final String name;
+        private final ConfigValue value;
+
+        Overwritten(String name, ConfigValue value) {
+            this.name = name;
+            this.value = value;
+        }
+
+        String getName() {
+            return this.name;
+        }
+
+        ConfigValue getValue() {
+            return this.value;
+        }
+    }
+}
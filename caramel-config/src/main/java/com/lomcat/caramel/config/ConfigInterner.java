@@ -0,0 +1,328 @@
+/*
+ * Copyright 2018-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.lomcat.caramel.config;
+
+import com.typesafe.config.*;
+
+import java.util.*;
+
+/**
+ * <p>
+ *     注册表范围的配置数据驻留（intern）。同一资源常被合并到多个 key 中，相同的配置值也常在不同环境的配置中重复出现，
+ *     驻留后这些 key 共享同一份路径元素名称、叶子值以及内容相同的子树（对象或列表），而不是各自持有一份完整的副本。
+ * </p>
+ *
+ * <p>
+ *     叶子值按类型及原始文本判等（如 {@code 1} 与 {@code 1.0} 不会被视为相同）；子树在其子节点全部驻留后，按名称及子节点的引用判等，
+ *     因此共享的子树与原子树的内容和类型完全一致，仅可能来源信息（{@link ConfigOrigin}）取自首次出现的位置。
+ * </p>
+ *
+ * <p>
+ *     驻留表只保留在用配置数据的节点：每个节点按其在在用配置数据中出现的次数计数，某个 key 发布新的配置数据时，
+ *     驻留新数据并释放该 key 原先的数据，计数归零的节点从驻留表中移除。因此每次加载或刷新只需处理发生变化的 key，
+ *     开销与变化的配置数据规模成正比，而与注册表中配置数据的总量无关。释放不会改变在用配置数据中任何节点的引用。
+ * </p>
+ *
+ * @author Kweny
+ * @since 0.0.1
+ */
+class ConfigInterner {
+
+    private final Map<String, String> names = new HashMap<>();
+    private final Map<Object, ConfigValue> values = new HashMap<>();
+    /** 驻留节点的引用计数，结构为 < 名称或驻留键, 计数 > */
+    private final Map<Object, Integer> references = new HashMap<>();
+    /** 各 key 当前驻留的配置数据，结构为 < key, 配置数据 > */
+    private final Map<String, Config> contents = new HashMap<>();
+
+    /**
+     * 驻留 key 的配置数据，并释放该 key 原先驻留的配置数据
+     *
+     * @param key 配置数据的 key
+     * @param content 配置数据
+     * @return 共享了已驻留节点的等价配置数据；若其全部节点均为已驻留节点，返回原对象
+     */
+    synchronized Config intern(String key, Config content) {
+        if (content == null) {
+            release(key);
+            return null;
+        }
+        ConfigObject root = content.root();
+        ConfigValue value = intern(root);
+        Config interned = value == root ? content : ((ConfigObject) value).toConfig();
+        // 先驻留后释放，新旧数据共有的节点计数不会中途归零
+        Config previous = this.contents.put(key, interned);
+        if (previous != null) {
+            release(previous.root());
+        }
+        return interned;
+    }
+
+    /**
+     * 释放 key 驻留的配置数据
+     *
+     * @param key 配置数据的 key
+     */
+    synchronized void release(String key) {
+        Config previous = this.contents.remove(key);
+        if (previous != null) {
+            release(previous.root());
+        }
+    }
+
+    synchronized void clear() {
+        this.names.clear();
+        this.values.clear();
+        this.references.clear();
+        this.contents.clear();
+    }
+
+    synchronized int size() {
+        return this.names.size() + this.values.size();
+    }
+
+    private ConfigValue intern(ConfigValue value) {
+        switch (value.valueType()) {
+            case OBJECT:
+                return internObject((ConfigObject) value);
+            case LIST:
+                return internList((ConfigList) value);
+            default:
+                return canonical(new LeafKey(value), value);
+        }
+    }
+
+    private ConfigValue internObject(ConfigObject object) {
+        Map<String, ConfigValue> children = new HashMap<>(object.size() * 4 / 3 + 1);
+        boolean unchanged = true;
+        for (Map.Entry<String, ConfigValue> entry : object.entrySet()) {
+            String name = internName(entry.getKey());
+            ConfigValue child = intern(entry.getValue());
+            unchanged &= name == entry.getKey() && child == entry.getValue();
+            children.put(name, child);
+        }
+        ObjectKey key = new ObjectKey(children);
+        ConfigValue existed = existed(key);
+        if (existed != null) {
+            return existed;
+        }
+        return canonical(key, unchanged ? object : ConfigValueFactory.fromMap(children));
+    }
+
+    private ConfigValue internList(ConfigList list) {
+        List<ConfigValue> elements = new ArrayList<>(list.size());
+        boolean unchanged = true;
+        for (ConfigValue element : list) {
+            ConfigValue interned = intern(element);
+            unchanged &= interned == element;
+            elements.add(interned);
+        }
+        ListKey key = new ListKey(elements);
+        ConfigValue existed = existed(key);
+        if (existed != null) {
+            return existed;
+        }
+        return canonical(key, unchanged ? list : ConfigValueFactory.fromIterable(elements));
+    }
+
+    private String internName(String name) {
+        String existed = this.names.putIfAbsent(name, name);
+        acquire(name);
+        return existed != null ? existed : name;
+    }
+
+    private ConfigValue existed(Object key) {
+        ConfigValue existed = this.values.get(key);
+        if (existed != null) {
+            acquire(key);
+        }
+        return existed;
+    }
+
+    private ConfigValue canonical(Object key, ConfigValue value) {
+        ConfigValue existed = this.values.putIfAbsent(key, value);
+        acquire(key);
+        return existed != null ? existed : value;
+    }
+
+    private void acquire(Object key) {
+        this.references.merge(key, 1, Integer::sum);
+    }
+
+    /**
+     * 按驻留时相同的方式遍历已驻留的配置数据，为其每个节点减少一次计数
+     */
+    private void release(ConfigValue value) {
+        Object key;
+        switch (value.valueType()) {
+            case OBJECT:
+                ConfigObject object = (ConfigObject) value;
+                Map<String, ConfigValue> children = new HashMap<>(object.size() * 4 / 3 + 1);
+                object.forEach((name, child) -> {
+                    unreference(name);
+                    release(child);
+                    children.put(name, child);
+                });
+                key = new ObjectKey(children);
+                break;
+            case LIST:
+                ConfigList list = (ConfigList) value;
+                list.forEach(this::release);
+                key = new ListKey(list);
+                break;
+            default:
+                key = new LeafKey(value);
+                break;
+        }
+        unreference(key);
+    }
+
+    private void unreference(Object key) {
+        if (this.references.computeIfPresent(key, (k, count) -> count > 1 ? count - 1 : null) == null) {
+            if (key instanceof String) {
+                this.names.remove(key);
+            } else {
+                this.values.remove(key);
+            }
+        }
+    }
+
+    /**
+     * 叶子值的驻留键：值的实现类型及原始文本
+     */
+    private static final class LeafKey {
+        private final Class<?> type;
+        private final String text;
+
+        LeafKey(ConfigValue value) {
+            this.type = value.getClass();
+            switch (value.valueType()) {
+                case STRING:
+                    this.text = (String) value.unwrapped();
+                    break;
+                case NUMBER:
+                    // 数值的渲染结果为其原始文本，与 getString 读取到的一致
+                    this.text = value.render(ConfigRenderOptions.concise());
+                    break;
+                default:
+                    this.text = String.valueOf(value.unwrapped());
+                    break;
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof LeafKey)) {
+                return false;
+            }
+            LeafKey other = (LeafKey) o;
+            return this.type == other.type && this.text.equals(other.text);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * this.type.hashCode() + this.text.hashCode();
+        }
+    }
+
+    /**
+     * 对象的驻留键：子节点名称及已驻留子节点的引用
+     */
+    private static final class ObjectKey {
+        private final Map<String, ConfigValue> children;
+        private final int hash;
+
+        ObjectKey(Map<String, ConfigValue> children) {
+            this.children = children;
+            int hash = 0;
+            for (Map.Entry<String, ConfigValue> entry : children.entrySet()) {
+                hash += entry.getKey().hashCode() ^ System.identityHashCode(entry.getValue());
+            }
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ObjectKey)) {
+                return false;
+            }
+            ObjectKey other = (ObjectKey) o;
+            if (this.hash != other.hash || this.children.size() != other.children.size()) {
+                return false;
+            }
+            for (Map.Entry<String, ConfigValue> entry : this.children.entrySet()) {
+                if (other.children.get(entry.getKey()) != entry.getValue()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+    }
+
+    /**
+     * 列表的驻留键：已驻留元素的引用序列
+     */
+    private static final class ListKey {
+        private final List<ConfigValue> elements;
+        private final int hash;
+
+        ListKey(List<ConfigValue> elements) {
+            this.elements = elements;
+            int hash = 1;
+            for (ConfigValue element : elements) {
+                hash = 31 * hash + System.identityHashCode(element);
+            }
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ListKey)) {
+                return false;
+            }
+            ListKey other = (ListKey) o;
+            if (this.hash != other.hash || this.elements.size() != other.elements.size()) {
+                return false;
+            }
+            for (int i = 0; i < this.elements.size(); i++) {
+                if (this.elements.get(i) != other.elements.get(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2018-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.lomcat.caramel.config;
+
+import com.typesafe.config.*;
+
+import java.util.*;
+
+/**
+ * <h3>配置数据的内存占用报告</h3>
+ *
+ * <p>
+ *     统计单个 key 当前快照的配置树（不含读取索引）中不重复的节点（对象、列表、叶子值及路径元素名称），
+ *     以及其中与其他 key 共享的节点。占用字节数为按 64 位 JVM（开启压缩指针）估算的浅层大小之和，仅用于比较和趋势观察。
+ * </p>
+ *
+ * <p>
+ *     以紧凑模式存储的 key，节点数为配置项数，占用字节数为紧凑存储的实际大小，且不与其他 key 共享。
+ * </p>
+ *
+ * @author Kweny
+ * @since 0.0.1
+ */
+public class ConfigMemoryReport {
+
+    private static final int STRING_BYTES = 40;
+    private static final int LEAF_BYTES = 32;
+    private static final int OBJECT_BYTES = 96;
+    private static final int OBJECT_ENTRY_BYTES = 40;
+    private static final int LIST_BYTES = 64;
+    private static final int LIST_ELEMENT_BYTES = 4;
+
+    private final String key;
+    private final int nodeCount;
+    private final int sharedNodeCount;
+    private final long estimatedBytes;
+    private final long exclusiveBytes;
+
+    ConfigMemoryReport(String key, int nodeCount, int sharedNodeCount, long estimatedBytes, long exclusiveBytes) {
+        this.key = key;
+        this.nodeCount = nodeCount;
+        this.sharedNodeCount = sharedNodeCount;
+        this.estimatedBytes = estimatedBytes;
+        this.exclusiveBytes = exclusiveBytes;
+    }
+
+    /**
+     * 统计全部 key 的内存占用
+     *
+     * @param configs 全部配置数据
+     * @return < key, 内存占用报告 >
+     */
+    static Map<String, ConfigMemoryReport> of(Map<String, CaramelConfig> configs) {
+        // 各 key 的不重复节点，以及每个节点被多少个 key 引用
+        Map<String, Map<Object, Long>> nodesByKey = new LinkedHashMap<>();
+        Map<Object, Integer> owners = new IdentityHashMap<>();
+        Map<String, ConfigMemoryReport> compactReports = new HashMap<>();
+        new TreeMap<>(configs).forEach((key, caramelConfig) -> {
+            CompactConfigStore compactStore = caramelConfig.snapshot().compactStore();
+            if (compactStore != null) {
+                compactReports.put(key, new ConfigMemoryReport(key, compactStore.size(), 0, compactStore.byteSize(), compactStore.byteSize()));
+                nodesByKey.put(key, null);
+                return;
+            }
+            Map<Object, Long> nodes = new IdentityHashMap<>();
+            Config content = caramelConfig.content();
+            if (content != null) {
+                collect(content.root(), nodes);
+            }
+            nodes.keySet().forEach(node -> owners.merge(node, 1, Integer::sum));
+            nodesByKey.put(key, nodes);
+        });
+
+        Map<String, ConfigMemoryReport> reports = new LinkedHashMap<>();
+        nodesByKey.forEach((key, nodes) -> {
+            if (nodes == null) {
+                reports.put(key, compactReports.get(key));
+                return;
+            }
+            int shared = 0;
+            long estimated = 0;
+            long exclusive = 0;
+            for (Map.Entry<Object, Long> node : nodes.entrySet()) {
+                estimated += node.getValue();
+                if (owners.get(node.getKey()) > 1) {
+                    shared++;
+                } else {
+                    exclusive += node.getValue();
+                }
+            }
+            reports.put(key, new ConfigMemoryReport(key, nodes.size(), shared, estimated, exclusive));
+        });
+        return reports;
+    }
+
+    private static void collect(ConfigValue value, Map<Object, Long> nodes) {
+        if (nodes.containsKey(value)) {
+            return;
+        }
+        switch (value.valueType()) {
+            case OBJECT:
+                ConfigObject object = (ConfigObject) value;
+                nodes.put(value, (long) OBJECT_BYTES + (long) OBJECT_ENTRY_BYTES * object.size());
+                object.forEach((name, child) -> {
+                    if (!nodes.containsKey(name)) {
+                        nodes.put(name, stringBytes(name));
+                    }
+                    collect(child, nodes);
+                });
+                break;
+            case LIST:
+                ConfigList list = (ConfigList) value;
+                nodes.put(value, (long) LIST_BYTES + (long) LIST_ELEMENT_BYTES * list.size());
+                list.forEach(element -> collect(element, nodes));
+                break;
+            case STRING:
+                nodes.put(value, LEAF_BYTES + stringBytes((String) value.unwrapped()));
+                break;
+            default:
+                nodes.put(value, (long) LEAF_BYTES);
+                break;
+        }
+    }
+
+    private static long stringBytes(String string) {
+        return STRING_BYTES + 2L * string.length();
+    }
+
+    /**
+     * @return 配置数据标识
+     */
+    public String getKey() {
+        return this.key;
+    }
+
+    /**
+     * @return 不重复的节点数
+     */
+    public int getNodeCount() {
+        return this.nodeCount;
+    }
+
+    /**
+     * @return 其中与其他 key 共享的节点数
+     */
+    public int getSharedNodeCount() {
+        return this.sharedNodeCount;
+    }
+
+    /**
+     * @return 全部节点的估算字节数
+     */
+    public long getEstimatedBytes() {
+        return this.estimatedBytes;
+    }
+
+    /**
+     * @return 仅由当前 key 引用的节点的估算字节数，即移除该 key 后可释放的大小
+     */
+    public long getExclusiveBytes() {
+        return this.exclusiveBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "ConfigMemoryReport{" +
+                "key='" + this.key + '\'' +
+                ", nodeCount=" + this.nodeCount +
+                ", sharedNodeCount=" + this.sharedNodeCount +
+                ", estimatedBytes=" + this.estimatedBytes +
+                ", exclusiveBytes=" + this.exclusiveBytes +
+                '}';
+    }
+}
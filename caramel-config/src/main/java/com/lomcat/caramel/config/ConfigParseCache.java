@@ -0,0 +1,199 @@
+/*
+ * Copyright 2018-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.lomcat.caramel.config;
+
+import com.lomcat.caramel.config.exception.ConfigLoadException;
+import com.typesafe.config.Config;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * <p>
+ *     配置资源解析结果的缓存，以资源内容的散列值为键，在所有 key、bunch 以及刷新周期之间共享。
+ *     同一份内容（如同一个文件被映射到多个 key）只会被解析一次。
+ * </p>
+ *
+ * <p>
+ *     缓存容量有上限，超出时按最近最少使用（LRU）淘汰；同一内容的并发解析请求将等待同一个解析任务，不会重复解析。
+ * </p>
+ *
+ * <p>
+ *     此外，当前在用资源的解析结果通过 {@link #retain(Collection)} 单独保留，不受容量限制和淘汰影响，
+ *     以保证刷新时未发生变化的资源无需重新解析。
+ * </p>
+ *
+ * @author Kweny
+ * @since 0.0.1
+ */
+class ConfigParseCache {
+
+    private final int maximumSize;
+    private final Map<String, FutureTask<Config>> entries;
+    /** 当前在用资源的解析结果 */
+    private volatile Map<String, Config> retained = Collections.emptyMap();
+
+    ConfigParseCache(int maximumSize) {
+        this.maximumSize = maximumSize;
+        this.entries = new LinkedHashMap<String, FutureTask<Config>>(16, 0.75f, true) {
+            private static final long serialVersionUID = -1543094741620218873L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, FutureTask<Config>> eldest) {
+                return size() > ConfigParseCache.this.maximumSize;
+            }
+        };
+    }
+
+    /**
+     * 以资源已知的散列值获取其解析结果，缓存未命中时使用 parser 解析并缓存，不为查找缓存而读取资源内容。
+     * parser 读取内容后若散列值与查找时不一致（沿用的散列值已过期），其结果不以原散列值缓存
+     *
+     * @param resource 配置资源
+     * @param parser 解析器
+     * @return 解析结果
+     */
+    Config get(ConfigResource resource, Callable<Config> parser) {
+        String hashValue = resource.getComputedHashValue();
+        if (hashValue == null) {
+            return call(resource, parser);
+        }
+
+        Config retainedConfig = this.retained.get(hashValue);
+        if (retainedConfig != null) {
+            return retainedConfig;
+        }
+
+        FutureTask<Config> parseTask;
+        boolean owner = false;
+        synchronized (this.entries) {
+            parseTask = this.entries.get(hashValue);
+            if (parseTask == null) {
+                parseTask = new FutureTask<>(() -> {
+                    Config config = parser.call();
+                    if (!hashValue.equals(resource.getComputedHashValue())) {
+                        throw new ContentChangedException(config);
+                    }
+                    return config;
+                });
+                this.entries.put(hashValue, parseTask);
+                owner = true;
+            }
+        }
+
+        if (owner) {
+            parseTask.run();
+        }
+        try {
+            return parseTask.get();
+        } catch (ExecutionException e) {
+            // 解析失败的结果不缓存，以便内容修正后重新解析
+            synchronized (this.entries) {
+                this.entries.remove(hashValue, parseTask);
+            }
+            if (e.getCause() instanceof ContentChangedException) {
+                // 解析者直接使用其读取到的内容的解析结果，等待同一散列值的其它资源则自行读取解析
+                return owner ? ((ContentChangedException) e.getCause()).config : call(resource, parser);
+            }
+            if (e.getCause() instanceof ConfigLoadException) {
+                throw (ConfigLoadException) e.getCause();
+            }
+            throw new ConfigLoadException(String.format("[Caramel.ParseCache] Error parsing config resource: %s", resource), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConfigLoadException(String.format("[Caramel.ParseCache] Interrupted while parsing config resource: %s", resource), e);
+        }
+    }
+
+    /**
+     * 保留指定内容的解析结果，替换之前保留的全部结果
+     *
+     * @param hashValues 当前在用资源的内容散列值
+     */
+    void retain(Collection<String> hashValues) {
+        Map<String, Config> current = this.retained;
+        Map<String, Config> next = new HashMap<>(hashValues.size() * 4 / 3 + 1);
+        for (String hashValue : hashValues) {
+            Config config = current.get(hashValue);
+            if (config == null) {
+                FutureTask<Config> parseTask;
+                synchronized (this.entries) {
+                    parseTask = this.entries.get(hashValue);
+                }
+                config = completed(parseTask);
+            }
+            if (config != null) {
+                next.put(hashValue, config);
+            }
+        }
+        this.retained = next;
+    }
+
+    int size() {
+        synchronized (this.entries) {
+            return this.entries.size();
+        }
+    }
+
+    void clear() {
+        synchronized (this.entries) {
+            this.entries.clear();
+        }
+        this.retained = Collections.emptyMap();
+    }
+
+    private static Config completed(FutureTask<Config> parseTask) {
+        if (parseTask == null || !parseTask.isDone() || parseTask.isCancelled()) {
+            return null;
+        }
+        try {
+            return parseTask.get();
+        } catch (ExecutionException | InterruptedException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 解析的内容与作为缓存键的散列值不一致，携带该内容的解析结果
+     */
+    private static class ContentChangedException extends Exception {
+        private static final long serialVersionUID = 4381305264818457263L;
+
+        private final transient Config config;
+
+        private ContentChangedException(Config config) {
+            super(null, null, false, false);
+            this.config = config;
+        }
+    }
+
+    private static Config call(ConfigResource resource, Callable<Config> parser) {
+        try {
+            return parser.call();
+        } catch (ConfigLoadException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ConfigLoadException(String.format("[Caramel.ParseCache] Error parsing config resource: %s", resource), e);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2018-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.lomcat.caramel.config;
+
+import com.lomcat.caramel.config.exception.ConfigPropertyException;
+import com.typesafe.config.*;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * <p>
+ *     {@link CaramelConfigSnapshot} 的路径前缀树，每个节点对应配置树中的一个对象或叶子配置项，
+ *     用于按前缀查询子树（如 {@code spring.redis.lettuce.pool} 下的全部配置项），耗时与前缀深度及结果规模成正比，与配置总量无关。
+ * </p>
+ *
+ * <p>
+ *     前缀树的节点不可变。构建新快照的前缀树时，以上一快照的前缀树为基础，内容未发生变化的子树直接复用原节点，
+ *     因此刷新只改动少量配置项时，新旧快照的前缀树共享绝大部分节点。
+ * </p>
+ *
+ * @author Kweny
+ * @since 0.0.1
+ */
+class ConfigPathTrie {
+
+    private final Node root;
+
+    /**
+     * @param content 配置数据
+     * @param basis 上一快照的前缀树，可以为 null
+     */
+    ConfigPathTrie(Config content, ConfigPathTrie basis) {
+        this.root = content != null ? build("", content.root(), basis != null ? basis.root : null) : new Node("", null, Collections.emptyMap());
+    }
+
+    /**
+     * 查找前缀对应的节点
+     *
+     * @param prefix 路径前缀，空字符串表示根节点，允许以 '.' 结尾
+     * @return 节点，不存在时返回 null
+     */
+    Node find(String prefix) {
+        if (prefix.isEmpty()) {
+            return this.root;
+        }
+        if (prefix.endsWith(".")) {
+            prefix = prefix.substring(0, prefix.length() - 1);
+        }
+
+        List<String> elements;
+        try {
+            elements = ConfigUtil.splitPath(prefix);
+        } catch (ConfigException e) {
+            throw new ConfigPropertyException(String.format("[Caramel.Config] Invalid path prefix '%s': %s", prefix, e.getMessage()), e);
+        }
+        Node node = this.root;
+        for (String element : elements) {
+            if (node.children == null) {
+                return null;
+            }
+            node = node.children.get(element);
+            if (node == null) {
+                return null;
+            }
+        }
+        return node;
+    }
+
+    private static Node build(String path, ConfigValue value, Node basis) {
+        if (basis != null && basis.value != null && basis.value.equals(value)) {
+            return basis;
+        }
+        if (!(value instanceof ConfigObject)) {
+            return new Node(path, value, null);
+        }
+
+        ConfigObject object = (ConfigObject) value;
+        List<String> names = new ArrayList<>(object.keySet());
+        Collections.sort(names);
+        Map<String, Node> children = new LinkedHashMap<>(names.size() * 4 / 3 + 1);
+        for (String name : names) {
+            ConfigValue childValue = object.get(name);
+            if (childValue.valueType() == ConfigValueType.NULL) {
+                // 与 Config#entrySet() 一致，值为 null 的配置项视为不存在
+                continue;
+            }
+            String childPath = path.isEmpty() ? ConfigUtil.joinPath(name) : path + "." + ConfigUtil.joinPath(name);
+            Node childBasis = basis != null && basis.children != null ? basis.children.get(name) : null;
+            children.put(name, build(childPath, childValue, childBasis));
+        }
+        return new Node(path, value, children);
+    }
+
+    /**
+     * 前缀树节点
+     */
+    static class Node {
+        /** 节点的完整路径，根节点为空字符串 */
+        private final String path;
+        private final ConfigValue value;
+        /** 子节点，叶子节点为 null */
+        private final Map<String, Node> children;
+
+        Node(String path, ConfigValue value, Map<String, Node> children) {
+            this.path = path;
+            this.value = value;
+            this.children = children;
+        }
+
+        String path() {
+            return this.path;
+        }
+
+        ConfigValue value() {
+            return this.value;
+        }
+
+        boolean isLeaf() {
+            return this.children == null;
+        }
+
+        /**
+         * 按路径顺序遍历当前节点下的全部叶子节点（不包含当前节点自身）
+         */
+        void forEachLeaf(Consumer<Node> action) {
+            if (this.children != null) {
+                this.children.values().forEach(child -> {
+                    if (child.isLeaf()) {
+                        action.accept(child);
+                    } else {
+                        child.forEachLeaf(action);
+                    }
+                });
+            }
+        }
+
+        /**
+         * @return 叶子节点相对于当前节点的路径
+         */
+        String relativePath(Node leaf) {
+            return this.path.isEmpty() ? leaf.path : leaf.path.substring(this.path.length() + 1);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2018-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.lomcat.caramel.config;
+
+import java.util.Objects;
+
+/**
+ * <h3>绑定到配置项的实时属性</h3>
+ *
+ * <p>
+ *     由 {@link CaramelConfig} 创建并绑定到其中的一个配置项路径，当前值保存在子类的 volatile 字段中，
+ *     {@link CaramelConfig} 每次发布新快照时原地更新，读取时只需一次字段读取，无需查找和装箱。
+ * </p>
+ *
+ * <p>
+ *     配置项被删除时：指定了默认值的属性恢复为默认值，未指定默认值的属性保留原值；
+ *     配置项的新值无法转换为所需类型时，同样保留原值，并记录警告日志。
+ * </p>
+ *
+ * <p>
+ *     {@link CaramelConfig} 以弱引用持有已绑定的属性，调用方不再持有的属性被垃圾回收后自动解绑；
+ *     属性应在初始化时创建一次并重复使用，而非每次读取时创建。
+ * </p>
+ *
+ * @author Kweny
+ * @since 0.0.1
+ */
+public abstract class ConfigProperty {
+
+    private final String key;
+    private final String path;
+    private final boolean defaultable;
+
+    ConfigProperty(String key, String path, boolean defaultable) {
+        this.key = key;
+        this.path = path;
+        this.defaultable = defaultable;
+    }
+
+    /**
+     * 以快照中的配置项更新当前值
+     *
+     * @param property 配置项，不存在时为 null
+     * @throws com.lomcat.caramel.config.exception.ConfigPropertyException 配置项不存在且没有默认值，或无法转换为所需类型
+     */
+    abstract void update(ConfigPropertyIndex.Property property);
+
+    /**
+     * 同一 {@link CaramelConfig} 中，标识相同的属性只创建一个
+     */
+    abstract Identity identity();
+
+    boolean isDefaultable() {
+        return this.defaultable;
+    }
+
+    /**
+     * @return 所属配置数据的标识
+     */
+    public String getKey() {
+        return this.key;
+    }
+
+    /**
+     * @return 配置项路径
+     */
+    public String getPath() {
+        return this.path;
+    }
+
+    /**
+     * 属性标识：属性类型、配置项路径，以及是否有默认值和默认值
+     */
+    static final class Identity {
+        private final Class<? extends ConfigProperty> type;
+        private final String path;
+        private final boolean defaultable;
+        private final Object defaultValue;
+
+        Identity(Class<? extends ConfigProperty> type, String path, boolean defaultable, Object defaultValue) {
+            this.type = type;
+            this.path = path;
+            this.defaultable = defaultable;
+            // 没有默认值时，默认值字段只是占位，不参与判等
+            this.defaultValue = defaultable ? defaultValue : null;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Identity)) {
+                return false;
+            }
+            Identity other = (Identity) o;
+            return this.type == other.type && this.defaultable == other.defaultable
+                    && this.path.equals(other.path) && Objects.equals(this.defaultValue, other.defaultValue);
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = 31 * this.type.hashCode() + this.path.hashCode();
+            hash = 31 * hash + (this.defaultable ? 1 : 0);
+            return 31 * hash + Objects.hashCode(this.defaultValue);
+        }
+    }
+}
@@ -0,0 +1,345 @@
+/*
+ * Copyright 2018-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.lomcat.caramel.config;
+
+import com.lomcat.caramel.config.exception.ConfigPropertyException;
+import com.lomcat.caramel.core.assist.NamingConvention;
+import com.typesafe.config.*;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * <p>
+ *     {@link CaramelConfigSnapshot} 的扁平配置项索引，结构为 < 叶子配置项路径, {@link Property} >。
+ * </p>
+ *
+ * <p>
+ *     索引在快照首次被读取时一次性构建，之后的读取只需一次散列查找，无需解析路径、逐级遍历配置树。
+ *     字符串、整数、浮点数和布尔值在构建时即转换完成，以原始类型保存，读取时不产生装箱；
+ *     时长和字节数在首次读取时解析并缓存。类型转换规则与 {@link Config} 的同名方法保持一致。
+ * </p>
+ *
+ * <p>
+ *     开启宽松匹配时，索引改以宽松比较名称为键（见 {@link NamingConvention#RELAXED}），
+ *     如 {@code max-active}、{@code maxActive}、{@code MAX_ACTIVE} 均可命中同一配置项。
+ *     宽松比较名称的散列和判等直接在原路径上进行，不创建比较名称，因此宽松查找与精确查找一样只需一次散列查找。
+ *     多个配置项的宽松比较名称相同时，无法确定应匹配哪一项，这些配置项只能精确匹配。
+ * </p>
+ *
+ * @author Kweny
+ * @since 0.0.1
+ */
+class ConfigPropertyIndex {
+
+    private final String key;
+    /** 精确匹配索引，开启宽松匹配时为 null */
+    private final Map<String, Property> properties;
+    /**
+     * 宽松匹配索引，未开启宽松匹配时为 null。
+     * 值为 {@link Property}；宽松比较名称冲突时为这些配置项的 < 路径, {@link Property} > 精确匹配索引
+     */
+    private final Map<RelaxedName, Object> relaxedProperties;
+    private final int size;
+
+    ConfigPropertyIndex(String key, Config content, boolean relaxed) {
+        Set<Map.Entry<String, ConfigValue>> entries = content != null ? content.entrySet() : Collections.emptySet();
+        this.key = key;
+        this.size = entries.size();
+        if (relaxed) {
+            this.properties = null;
+            this.relaxedProperties = new HashMap<>(entries.size() * 4 / 3 + 1);
+            entries.forEach(entry -> {
+                Property property = new Property(key, entry.getKey(), entry.getValue());
+                this.relaxedProperties.merge(new RelaxedName(entry.getKey()), property, ConfigPropertyIndex::ambiguous);
+            });
+        } else {
+            this.properties = new HashMap<>(entries.size() * 4 / 3 + 1);
+            entries.forEach(entry -> this.properties.put(entry.getKey(), new Property(key, entry.getKey(), entry.getValue())));
+            this.relaxedProperties = null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object ambiguous(Object existed, Object property) {
+        Map<String, Property> exact;
+        if (existed instanceof Property) {
+            exact = new HashMap<>(4);
+            exact.put(((Property) existed).path, (Property) existed);
+        } else {
+            exact = (Map<String, Property>) existed;
+        }
+        exact.put(((Property) property).path, (Property) property);
+        return exact;
+    }
+
+    /**
+     * 查找配置项
+     *
+     * @param path 配置项路径
+     * @return 配置项，不存在（或值为 null）时返回 null
+     */
+    @SuppressWarnings("unchecked")
+    Property find(String path) {
+        if (this.relaxedProperties == null) {
+            return this.properties.get(path);
+        }
+        Object found = this.relaxedProperties.get(new RelaxedName(path));
+        if (found == null || found instanceof Property) {
+            return (Property) found;
+        }
+        return ((Map<String, Property>) found).get(path);
+    }
+
+    /**
+     * 获取配置项
+     *
+     * @param path 配置项路径
+     * @return 配置项
+     * @throws ConfigPropertyException 配置项不存在（或值为 null）
+     */
+    Property get(String path) {
+        Property property = find(path);
+        if (property == null) {
+            throw new ConfigPropertyException(String.format("[Caramel.Config] No property '%s' found in config '%s'", path, this.key));
+        }
+        return property;
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * 以宽松比较名称散列和判等的路径
+     */
+    private static final class RelaxedName {
+        private final String path;
+        private final int hash;
+
+        RelaxedName(String path) {
+            this.path = path;
+            this.hash = NamingConvention.RELAXED.hash(path);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof RelaxedName)) {
+                return false;
+            }
+            RelaxedName other = (RelaxedName) o;
+            return this.hash == other.hash && NamingConvention.RELAXED.matches(this.path, other.path);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+    }
+
+    /**
+     * 已索引的叶子配置项
+     */
+    static class Property {
+        private static final byte BOOLEAN_NONE = -1;
+        private static final byte BOOLEAN_FALSE = 0;
+        private static final byte BOOLEAN_TRUE = 1;
+
+        private final String key;
+        private final String path;
+        private final ConfigValue value;
+
+        /** 字符串形式，列表等无法转换为字符串的值为 null */
+        private final String stringValue;
+        /** 是否可以转换为数值 */
+        private final boolean numeric;
+        /** 是否为整数（数值本身为整数，或字符串可以解析为 long） */
+        private final boolean integral;
+        private final long longValue;
+        private final double doubleValue;
+        private final byte booleanValue;
+
+        /** 首次读取时解析，解析结果不可变，并发重复解析无副作用 */
+        private volatile Duration durationValue;
+        private volatile Long bytesValue;
+
+        Property(String key, String path, ConfigValue value) {
+            this.key = key;
+            this.path = path;
+            this.value = value;
+
+            String string = null;
+            boolean numeric = false;
+            boolean integral = false;
+            long longValue = 0;
+            double doubleValue = 0;
+            byte booleanValue = BOOLEAN_NONE;
+            switch (value.valueType()) {
+                case NUMBER:
+                    Number number = (Number) value.unwrapped();
+                    string = value.render(ConfigRenderOptions.concise());
+                    numeric = true;
+                    integral = number instanceof Integer || number instanceof Long;
+                    longValue = number.longValue();
+                    doubleValue = number.doubleValue();
+                    break;
+                case BOOLEAN:
+                    booleanValue = (Boolean) value.unwrapped() ? BOOLEAN_TRUE : BOOLEAN_FALSE;
+                    string = String.valueOf(value.unwrapped());
+                    break;
+                case STRING:
+                    string = (String) value.unwrapped();
+                    if (maybeNumber(string)) {
+                        try {
+                            longValue = Long.parseLong(string);
+                            doubleValue = longValue;
+                            numeric = integral = true;
+                        } catch (NumberFormatException e) {
+                            try {
+                                doubleValue = Double.parseDouble(string);
+                                longValue = (long) doubleValue;
+                                numeric = true;
+                            } catch (NumberFormatException ignored) {
+                                // 非数值字符串
+                            }
+                        }
+                    }
+                    booleanValue = parseBoolean(string);
+                    break;
+                default:
+                    break;
+            }
+            this.stringValue = string;
+            this.numeric = numeric;
+            this.integral = integral;
+            this.longValue = longValue;
+            this.doubleValue = doubleValue;
+            this.booleanValue = booleanValue;
+        }
+
+        ConfigValue value() {
+            return this.value;
+        }
+
+        String stringValue() {
+            if (this.stringValue == null) {
+                throw wrongType("STRING");
+            }
+            return this.stringValue;
+        }
+
+        int intValue() {
+            long longValue = longValue();
+            if (longValue < Integer.MIN_VALUE || longValue > Integer.MAX_VALUE) {
+                throw new ConfigPropertyException(String.format("[Caramel.Config] Property '%s' in config '%s' is out of range for a 32-bit integer: %s",
+                        this.path, this.key, this.stringValue));
+            }
+            return (int) longValue;
+        }
+
+        long longValue() {
+            if (!this.numeric) {
+                throw wrongType("NUMBER");
+            }
+            return this.longValue;
+        }
+
+        double doubleValue() {
+            if (!this.numeric) {
+                throw wrongType("NUMBER");
+            }
+            return this.doubleValue;
+        }
+
+        boolean booleanValue() {
+            if (this.booleanValue == BOOLEAN_NONE) {
+                throw wrongType("BOOLEAN");
+            }
+            return this.booleanValue == BOOLEAN_TRUE;
+        }
+
+        Duration durationValue() {
+            Duration duration = this.durationValue;
+            if (duration == null) {
+                // 整数按毫秒处理，字符串按 HOCON 时长格式解析（如 30s、500ms）
+                duration = this.integral ? Duration.ofMillis(this.longValue) : convert(config -> config.getDuration("value"));
+                this.durationValue = duration;
+            }
+            return duration;
+        }
+
+        long bytesValue() {
+            Long bytes = this.bytesValue;
+            if (bytes == null) {
+                // 整数按字节数处理，字符串按 HOCON 容量格式解析（如 512KB、10M）
+                bytes = this.integral ? this.longValue : convert(config -> config.getBytes("value"));
+                this.bytesValue = bytes;
+            }
+            return bytes;
+        }
+
+        /**
+         * 借助单项 {@link Config} 完成 {@link Config} 支持而索引未预先转换的类型转换
+         */
+        <T> T convert(Function<Config, T> converter) {
+            try {
+                return converter.apply(this.value.atKey("value"));
+            } catch (ConfigException e) {
+                throw new ConfigPropertyException(String.format("[Caramel.Config] Error reading property '%s' in config '%s': %s",
+                        this.path, this.key, e.getMessage()), e);
+            }
+        }
+
+        private ConfigPropertyException wrongType(String expected) {
+            return new ConfigPropertyException(String.format("[Caramel.Config] Property '%s' in config '%s' has type %s rather than %s",
+                    this.path, this.key, this.value.valueType(), expected));
+        }
+
+        private static boolean maybeNumber(String string) {
+            if (string.isEmpty()) {
+                return false;
+            }
+            char first = string.charAt(0);
+            return (first >= '0' && first <= '9') || first == '-' || first == '+' || first == '.';
+        }
+
+        /**
+         * 与 {@link Config#getBoolean(String)} 一致，字符串 true/yes/on 和 false/no/off 可转换为布尔值
+         */
+        private static byte parseBoolean(String string) {
+            switch (string) {
+                case "true":
+                case "yes":
+                case "on":
+                    return BOOLEAN_TRUE;
+                case "false":
+                case "no":
+                case "off":
+                    return BOOLEAN_FALSE;
+                default:
+                    return BOOLEAN_NONE;
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2018-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.lomcat.caramel.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ *     配置资源的定时轮询刷新调度器。
+ * </p>
+ *
+ * <p>
+ *     所有调度器共享同一个守护线程，每个调度器在该线程上只有一个待执行的轮询任务，
+ *     空闲开销不随 key 及资源的数量增加而增加线程或定时任务。
+ *     每次轮询结束后以 {@code 间隔 ±10%} 的随机延迟安排下一次轮询，避免多个实例同时访问共享的资源。
+ * </p>
+ *
+ * @author Kweny
+ * @since 0.0.1
+ */
+class ConfigRefreshScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConfigRefreshScheduler.class);
+
+    /** 间隔的随机浮动比例 */
+    private static final double JITTER = 0.1;
+
+    private final Runnable poller;
+    private final long intervalNanos;
+
+    private volatile boolean running;
+    private ScheduledFuture<?> future;
+
+    /**
+     * @param poller 轮询任务，检查配置资源的变化，发现变化时将刷新交由其他线程执行
+     * @param interval 轮询间隔
+     */
+    ConfigRefreshScheduler(Runnable poller, Duration interval) {
+        this.poller = poller;
+        this.intervalNanos = interval.toNanos();
+    }
+
+    synchronized void start() {
+        if (this.running) {
+            return;
+        }
+        this.running = true;
+        scheduleNext();
+    }
+
+    synchronized void stop() {
+        this.running = false;
+        if (this.future != null) {
+            this.future.cancel(false);
+            this.future = null;
+        }
+    }
+
+    boolean isRunning() {
+        return this.running;
+    }
+
+    private synchronized void scheduleNext() {
+        if (!this.running) {
+            return;
+        }
+        long jitter = (long) (this.intervalNanos * JITTER);
+        long delay = this.intervalNanos + (jitter > 0 ? ThreadLocalRandom.current().nextLong(-jitter, jitter + 1) : 0);
+        this.future = Holder.EXECUTOR.schedule(this::poll, Math.max(delay, 1), TimeUnit.NANOSECONDS);
+    }
+
+    private void poll() {
+        try {
+            if (this.running) {
+                this.poller.run();
+            }
+        } catch (Throwable e) {
+            logger.warn("[Caramel.Refresh] Error polling config resources.", e);
+        } finally {
+            scheduleNext();
+        }
+    }
+
+    /** 共享的轮询线程，首次使用时创建 */
+    private static class Holder {
+        private static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "caramel-config-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
@@ -16,15 +16,22 @@
 
 package com.lomcat.caramel.config;
 
+import com.lomcat.caramel.config.exception.ConfigLoadException;
 import com.lomcat.caramel.config.listener.ConfigListener;
+import com.lomcat.caramel.config.monitor.ConfigResourceMonitor;
+import com.lomcat.caramel.config.monitor.WatchServiceConfigResourceMonitor;
 import com.lomcat.caramel.core.assist.CollectionAide;
 import com.lomcat.caramel.core.assist.MapAide;
+import com.lomcat.caramel.core.assist.StringAide;
+import com.typesafe.config.Config;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.time.Duration;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * 配置数据注册器，持有 caramel 配置数据
@@ -36,6 +43,13 @@ public class ConfigRegistry {
 
     private static final Logger logger = LoggerFactory.getLogger(ConfigRegistry.class);
 
+    /** 默认的解析缓存容量 */
+    public static final int DEFAULT_PARSE_CACHE_SIZE = 256;
+    /** 默认的自动刷新轮询间隔 */
+    public static final Duration DEFAULT_REFRESH_INTERVAL = Duration.ofSeconds(30);
+    /** 资源监视器正在监视的资源，每隔多少次轮询检查一次 */
+    private static final int WATCHED_POLL_CYCLES = 10;
+
     /**
      * 是否启用 Caramel 配置文件加载
      */
@@ -48,11 +62,53 @@ public class ConfigRegistry {
      * 是否开启自动刷新（全局，会被每个定位对象的配置覆盖）
      */
     private boolean refreshEnabled;
+    /**
+     * 自动刷新的轮询间隔，为空时使用 {@link #DEFAULT_REFRESH_INTERVAL}
+     */
     private Duration refreshInterval;
+    /**
+     * 开启自动刷新时，是否监视文件系统中的配置资源，资源变化时即时刷新；不支持监视的资源（如 jar 中的资源、远程 URL 资源）仍由定时轮询检查。默认开启
+     */
+    private boolean watchEnabled;
     /**
      * 对于配置项的名称是否开启串型和驼峰命名的映射。默认开启
      */
     private boolean mapKebabCamelCase;
+    /**
+     * 是否并行加载配置数据：各 key 之间并行加载，同 key 下的资源并行读取和解析、按优先级顺序合并。默认关闭
+     */
+    private boolean parallelLoadEnabled;
+    /**
+     * 并行加载使用的执行器，若未指定则使用 {@link ForkJoinPool#commonPool()}
+     */
+    private Executor loadExecutor;
+    /**
+     * 配置资源解析缓存的容量（按内容散列值缓存解析结果，在各 key 及刷新周期之间共享），小于等于 0 表示不缓存
+     */
+    private int parseCacheSize;
+    /**
+     * 持久化快照文件路径，为空表示不启用。
+     * 启用后，每次完整加载完成时将合并后的配置数据写入该文件，下次启动时若资源未发生变化则直接由快照还原，无需解析和合并
+     */
+    private String snapshotFile;
+    /**
+     * 是否在注册表范围内驻留配置数据：各 key 共享相同的路径元素名称、叶子值以及内容相同的子树。默认关闭。
+     * 适用于大量 key 合并了相同资源或包含大量重复值的场景；值大多互不相同时，驻留表本身反而会增加内存占用
+     */
+    private boolean internEnabled;
+    /**
+     * 以紧凑模式存储的 key，适用于配置项数量极大的 key：配置项以字节数组紧凑存储，读取方法不变，但单次读取需额外解码。
+     * 紧凑模式的 key 不参与驻留
+     */
+    private Set<String> compactKeys;
+    /**
+     * 是否延迟加载：初始化时只定位配置资源，各 key 的读取、解析和合并推迟到首次 {@link #get(String)} 时进行。默认关闭
+     */
+    private boolean lazyLoadEnabled;
+    /**
+     * 延迟加载时，是否在初始化后由加载执行器在后台预先加载全部 key。默认关闭
+     */
+    private boolean lazyWarmUpEnabled;
 
     /** 配置资源定位器 */
     private List<ConfigResourceLocator> locators;
@@ -62,36 +118,267 @@ public class ConfigRegistry {
     /** 配置数据注册表，结构为 < key, config > */
     private final Map<String, CaramelConfig> configHolder;
 
+    /** 配置资源解析缓存 */
+    private volatile ConfigParseCache parseCache;
+    /** 最近一次定位到的配置资源，作为增量刷新的比较基准 */
+    private volatile Map<String, List<ConfigResourceBunch>> bunchesMap;
+    /** 加载与刷新互斥 */
+    private final Object loadLock = new Object();
+    /** 配置数据驻留表 */
+    private final ConfigInterner interner = new ConfigInterner();
+    /** 延迟加载模式下尚未加载的 key，结构为 < key, 加载任务 > */
+    private final Map<String, FutureTask<Void>> pendingKeys = new ConcurrentHashMap<>();
+    /** 自动刷新调度器，未开启自动刷新时为 null */
+    private volatile ConfigRefreshScheduler refreshScheduler;
+    /** 配置资源监视器，未开启自动刷新或监视时为 null */
+    private volatile ConfigResourceMonitor resourceMonitor;
+    /** 轮询发起的刷新是否正在执行 */
+    private final AtomicBoolean pollRefreshing = new AtomicBoolean();
+    /** 轮询次数，只由轮询线程访问 */
+    private int pollCycles;
+
     public ConfigRegistry() {
         this.mapKebabCamelCase = true;
+        this.parseCacheSize = DEFAULT_PARSE_CACHE_SIZE;
+        this.watchEnabled = true;
         this.configHolder = new ConcurrentHashMap<>();
     }
 
-    void register(CaramelConfig config) {
-        this.configHolder.put(config.getKey(), config);
+    /**
+     * 注册配置数据，开启串型-驼峰命名映射时，配置项读取同时开启宽松匹配。若 key 已存在，则向已存在的 {@link CaramelConfig} 发布新版本的快照，
+     * 以保证调用方持有的 {@link CaramelConfig} 对象在刷新后仍能读取到最新数据。
+     */
+    CaramelConfig register(String key, Config content) {
+        boolean compact = this.compactKeys != null && this.compactKeys.contains(key);
+        if (this.internEnabled && !compact) {
+            content = this.interner.intern(key, content);
+        } else {
+            this.interner.release(key);
+        }
+
+        CaramelConfig caramelConfig = this.configHolder.get(key);
+        if (caramelConfig == null) {
+            CaramelConfig created = new CaramelConfig(key, content, this.mapKebabCamelCase, compact);
+            caramelConfig = this.configHolder.putIfAbsent(key, created);
+            if (caramelConfig == null) {
+                return created;
+            }
+        }
+        caramelConfig.publish(content);
+        return caramelConfig;
+    }
+
+    ConfigParseCache parseCache() {
+        ConfigParseCache cache = this.parseCache;
+        if (cache == null && this.parseCacheSize > 0) {
+            synchronized (this) {
+                cache = this.parseCache;
+                if (cache == null) {
+                    this.parseCache = cache = new ConfigParseCache(this.parseCacheSize);
+                }
+            }
+        }
+        return cache;
     }
 
     /**
-     * 获取指定 key 对应的配置数据
+     * 获取指定 key 对应的配置数据。延迟加载模式下，若该 key 尚未加载则在当前线程加载，
+     * 同一 key 的并发首次读取只会加载一次，其余读取方等待其完成
      *
      * @param key 配置数据标识，可能是文件名
      * @return 一个 {@link CaramelConfig} 对象
      */
     public CaramelConfig get(String key) {
+        CaramelConfig caramelConfig = configHolder.get(key);
+        if (caramelConfig == null && !this.pendingKeys.isEmpty()) {
+            caramelConfig = loadPending(key);
+        }
+        return caramelConfig;
+    }
+
+    private CaramelConfig loadPending(String key) {
+        FutureTask<Void> loadTask;
+        while ((loadTask = this.pendingKeys.get(key)) != null) {
+            loadTask.run();
+            try {
+                loadTask.get();
+                break;
+            } catch (CancellationException e) {
+                // 任务已被刷新取消并替换，继续等待新的任务
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof ConfigLoadException) {
+                    throw (ConfigLoadException) e.getCause();
+                }
+                throw new ConfigLoadException(String.format("[Caramel.Registry] Error loading config key '%s'", key), e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ConfigLoadException(String.format("[Caramel.Registry] Interrupted while loading config key '%s'", key), e);
+            }
+        }
         return configHolder.get(key);
     }
 
     /**
-     * 获取所有的配置数据
+     * 创建延迟加载任务。任务成功完成后将自身移出待加载集合；失败的任务保留，之后的读取将抛出同一异常，直至刷新将其替换
+     */
+    private FutureTask<Void> createPendingTask(String key, List<ConfigResourceBunch> bunches) {
+        Map<String, List<ConfigResourceBunch>> keyBunches = Collections.singletonMap(key, bunches);
+        return new FutureTask<Void>(() -> ConfigResourceLoader.create(this, keyBunches, this.echo, this.listeners).load(), null) {
+            @Override
+            protected void done() {
+                if (isCancelled()) {
+                    return;
+                }
+                try {
+                    get();
+                    pendingKeys.remove(key, this);
+                } catch (ExecutionException e) {
+                    logger.warn(String.format("[Caramel.Registry] Error loading config key '%s'", key), e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+    }
+
+    /**
+     * 将待加载的 key 交由加载执行器在后台加载
+     */
+    private void warmUp(Collection<FutureTask<Void>> loadTasks) {
+        Executor executor = this.loadExecutor != null ? this.loadExecutor : ForkJoinPool.commonPool();
+        loadTasks.forEach(executor::execute);
+    }
+
+    /**
+     * 统计各 key 配置数据的内存占用，包括与其他 key 共享的部分
+     *
+     * @return < key, 内存占用报告 >，按 key 排序
+     */
+    public Map<String, ConfigMemoryReport> memoryReport() {
+        return ConfigMemoryReport.of(this.configHolder);
+    }
+
+    /**
+     * 统计指定 key 配置数据的内存占用
+     *
+     * @param key 配置数据标识
+     * @return 内存占用报告，key 不存在时返回 null
+     */
+    public ConfigMemoryReport memoryReport(String key) {
+        return memoryReport().get(key);
+    }
+
+    /**
+     * 获取所有的配置数据。延迟加载模式下，将先加载全部尚未加载的 key
      *
      * @return 一个 key 为配置数据标识，value 为 {@link CaramelConfig} 的 {@link Map} 对象
      */
     public Map<String, CaramelConfig> getAll() {
+        new ArrayList<>(this.pendingKeys.keySet()).forEach(this::loadPending);
         return Collections.unmodifiableMap(configHolder);
     }
 
+    /**
+     * <p>
+     *     增量刷新：重新定位全部配置资源，仅重新加载资源发生变化（新增、删除、内容或顺序变化）的 key，
+     *     其中未变化资源的解析结果由解析缓存提供，无需重新读取和解析；已不存在任何资源的 key 将被移除。
+     * </p>
+     * <p>
+     *     重新加载的 key 在合并完成后整体替换注册表中的旧配置数据，读取方不会看到合并中途的状态。
+     * </p>
+     * <p>
+     *     延迟加载模式下，尚未加载的 key 不会因刷新而加载，只替换其加载任务；新增的 key 同样延迟加载。
+     * </p>
+     */
     public void refresh() {
-        // TODO-Kweny refresh
+        refresh(null);
+    }
+
+    /**
+     * 增量刷新指定的 key，其余 key 即使资源发生变化也不重新加载，其比较基准保持不变
+     *
+     * @param keys 需要刷新的 key，为 null 表示全部 key
+     */
+    public void refresh(Collection<String> keys) {
+        if (!this.enabled) {
+            return;
+        }
+
+        synchronized (this.loadLock) {
+            Map<String, List<ConfigResourceBunch>> previous = this.bunchesMap != null ? this.bunchesMap : Collections.emptyMap();
+            // 只刷新部分 key 时只重新定位这些 key
+            Map<String, List<ConfigResourceBunch>> located = loadResourceBunches(this.locators, keys);
+            inheritHashValues(previous, located);
+
+            Map<String, List<ConfigResourceBunch>> current;
+            if (keys == null) {
+                current = located;
+            } else {
+                current = new HashMap<>(previous);
+                keys.forEach(key -> {
+                    List<ConfigResourceBunch> bunches = located.get(key);
+                    if (bunches != null) {
+                        current.put(key, bunches);
+                    } else {
+                        current.remove(key);
+                    }
+                });
+            }
+
+            Map<String, List<ConfigResourceBunch>> changed = new HashMap<>();
+            Map<String, ConfigResource> compared = new HashMap<>();
+            current.forEach((key, bunches) -> {
+                if ((keys == null || keys.contains(key)) && !sameResources(previous.get(key), bunches, compared)) {
+                    changed.put(key, bunches);
+                }
+            });
+            Set<String> removed = new HashSet<>(previous.keySet());
+            removed.removeAll(current.keySet());
+
+            this.bunchesMap = current;
+            if (changed.isEmpty() && removed.isEmpty()) {
+                logger.debug("[Caramel.Registry] No config resource changed.");
+                return;
+            }
+
+            Map<String, List<ConfigResourceBunch>> reloading = new HashMap<>();
+            List<FutureTask<Void>> created = new ArrayList<>();
+            changed.forEach((key, bunches) -> {
+                FutureTask<Void> pendingTask = this.pendingKeys.get(key);
+                if (pendingTask == null && (!this.lazyLoadEnabled || this.configHolder.containsKey(key))) {
+                    reloading.put(key, bunches);
+                    return;
+                }
+
+                FutureTask<Void> loadTask = createPendingTask(key, bunches);
+                this.pendingKeys.put(key, loadTask);
+                created.add(loadTask);
+                if (pendingTask != null && !pendingTask.cancel(false)) {
+                    // 原任务已在执行或已完成，等待其结束后以新的资源重新加载，避免其结果覆盖新的配置数据
+                    awaitQuietly(pendingTask);
+                    this.pendingKeys.remove(key, loadTask);
+                    created.remove(loadTask);
+                    reloading.put(key, bunches);
+                }
+            });
+            if (!reloading.isEmpty()) {
+                ConfigResourceLoader.create(this, reloading, this.echo, this.listeners).load();
+            }
+            removed.forEach(key -> {
+                FutureTask<Void> pendingTask = this.pendingKeys.remove(key);
+                if (pendingTask != null) {
+                    pendingTask.cancel(false);
+                }
+                this.configHolder.remove(key);
+                this.interner.release(key);
+            });
+            if (this.lazyWarmUpEnabled && !created.isEmpty()) {
+                warmUp(created);
+            }
+            afterLoad();
+            watchResources();
+            logger.debug("[Caramel.Registry] Caramel config refreshed, reloaded keys: {}, removed keys: {}", changed.keySet(), removed);
+        }
     }
 
     public void init() {
@@ -115,14 +402,35 @@ public class ConfigRegistry {
         最终 后加载的高优先级项 将覆盖 先加载的低优先级项
          */
 
-        // 加载配置文件资源集
-        Map<String, List<ConfigResourceBunch>> bunchesMap = loadResourceBunches(this.locators);
-        if (MapAide.isEmpty(bunchesMap)) {
-            logger.debug("[Caramel.Registry] No config resource.");
-            return;
-        }
+        synchronized (this.loadLock) {
+            // 加载配置文件资源集
+            Map<String, List<ConfigResourceBunch>> bunchesMap = loadResourceBunches(this.locators, null);
+            this.bunchesMap = bunchesMap;
+            if (MapAide.isEmpty(bunchesMap)) {
+                logger.debug("[Caramel.Registry] No config resource.");
+                return;
+            }
 
-        ConfigResourceLoader.create(this, bunchesMap, this.echo, this.listeners).load();
+            if (restoreSnapshot(bunchesMap)) {
+                startAutoRefresh();
+                return;
+            }
+
+            if (this.lazyLoadEnabled) {
+                bunchesMap.forEach((key, bunches) -> this.pendingKeys.put(key, createPendingTask(key, bunches)));
+                logger.debug("[Caramel.Registry] Caramel config keys are pending for lazy loading: {}", bunchesMap.keySet());
+                if (this.lazyWarmUpEnabled) {
+                    warmUp(new ArrayList<>(this.pendingKeys.values()));
+                }
+                afterLoad();
+                startAutoRefresh();
+                return;
+            }
+
+            ConfigResourceLoader.create(this, bunchesMap, this.echo, this.listeners).load();
+            afterLoad();
+            startAutoRefresh();
+        }
 
         /*
         TODO-Kweny 重写 Resource 对象，解除对 spring-core.io 的依赖
@@ -132,15 +440,269 @@ public class ConfigRegistry {
         */
     }
 
-    private Map<String, List<ConfigResourceBunch>> loadResourceBunches(List<ConfigResourceLocator> locators) {
+    /**
+     * 若全局或任意 bunch 开启了自动刷新，则启动资源监视器和定时轮询
+     */
+    private void startAutoRefresh() {
+        boolean refreshRequired = this.refreshEnabled || this.bunchesMap.values().stream()
+                .anyMatch(bunches -> bunches.stream().anyMatch(bunch -> bunch.isRefreshEnabled(false)));
+        if (!refreshRequired || this.refreshScheduler != null) {
+            return;
+        }
+        Duration interval = this.refreshInterval != null ? this.refreshInterval : DEFAULT_REFRESH_INTERVAL;
+        if (interval.isZero() || interval.isNegative()) {
+            logger.debug("[Caramel.Registry] Caramel config refresh is disabled by non-positive interval: {}", interval);
+            return;
+        }
+        if (this.watchEnabled) {
+            ConfigResourceMonitor monitor = new WatchServiceConfigResourceMonitor();
+            monitor.start(this::refreshChanged);
+            this.resourceMonitor = monitor;
+            watchResources();
+        }
+        ConfigRefreshScheduler scheduler = new ConfigRefreshScheduler(this::pollChanges, interval);
+        this.refreshScheduler = scheduler;
+        scheduler.start();
+        logger.debug("[Caramel.Registry] Caramel config refresh scheduled, interval: {}", interval);
+    }
+
+    /**
+     * 资源监视器或轮询发现变化后，使定位器缓存的定位结果失效，再刷新发生变化的 key
+     */
+    private void refreshChanged(Set<String> keys) {
+        if (CollectionAide.isNotEmpty(this.locators)) {
+            this.locators.forEach(ConfigResourceLocator::invalidate);
+        }
+        refresh(keys);
+    }
+
+    /**
+     * 将开启了自动刷新的 bunch 及定位器的查找位置交由资源监视器监视
+     */
+    private void watchResources() {
+        ConfigResourceMonitor monitor = this.resourceMonitor;
+        if (monitor == null) {
+            return;
+        }
+        Map<String, List<ConfigResourceBunch>> watched = new HashMap<>();
+        this.bunchesMap.forEach((key, bunches) -> bunches.forEach(bunch -> {
+            if (bunch.isRefreshEnabled(this.refreshEnabled)) {
+                watched.computeIfAbsent(key, k -> new ArrayList<>()).add(bunch);
+            }
+        }));
+        List<ConfigResourceProbe> probes = new ArrayList<>();
+        if (CollectionAide.isNotEmpty(this.locators)) {
+            this.locators.forEach(locator -> locator.getProbes().forEach(probe -> {
+                if (probe.isRefreshEnabled(this.refreshEnabled)) {
+                    probes.add(probe);
+                }
+            }));
+        }
+        monitor.watch(watched, probes);
+    }
+
+    /**
+     * 轮询开启了自动刷新的 bunch，检查其资源是否发生变化，并将资源发生变化的 key 交由加载执行器刷新。
+     * 未发生变化时只检查资源本身，不重新定位；资源监视器正在监视的资源由监视器负责，
+     * 只每 {@link #WATCHED_POLL_CYCLES} 次轮询检查一次，以防监视遗漏事件
+     */
+    void pollChanges() {
+        Map<String, List<ConfigResourceBunch>> bunchesMap = this.bunchesMap;
+        // 上次轮询发起的刷新尚未完成时跳过本次轮询，其比较基准尚未更新
+        if (MapAide.isEmpty(bunchesMap) || this.pollRefreshing.get()) {
+            return;
+        }
+        ConfigResourceMonitor monitor = ++this.pollCycles % WATCHED_POLL_CYCLES == 0 ? null : this.resourceMonitor;
+
+        Set<String> changedKeys = new HashSet<>();
+        bunchesMap.forEach((key, bunches) -> {
+            for (ConfigResourceBunch bunch : bunches) {
+                if (bunch.isRefreshEnabled(this.refreshEnabled) && MapAide.isNotEmpty(bunch.getResources())
+                        && bunch.getResources().values().stream().anyMatch(resource -> (monitor == null || !monitor.supports(resource)) && resource.isChanged())) {
+                    changedKeys.add(key);
+                    break;
+                }
+            }
+        });
+        if (!changedKeys.isEmpty() && this.pollRefreshing.compareAndSet(false, true)) {
+            logger.debug("[Caramel.Registry] Config resources changed, refreshing keys: {}", changedKeys);
+            // 轮询线程由全部注册表共享，刷新交由加载执行器执行，避免阻塞其他注册表的轮询
+            Executor executor = this.loadExecutor != null ? this.loadExecutor : ForkJoinPool.commonPool();
+            try {
+                executor.execute(() -> {
+                    try {
+                        refreshChanged(changedKeys);
+                    } catch (RuntimeException e) {
+                        logger.warn(String.format("[Caramel.Registry] Error refreshing config keys %s", changedKeys), e);
+                    } finally {
+                        this.pollRefreshing.set(false);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                this.pollRefreshing.set(false);
+                logger.warn("[Caramel.Registry] Config refresh rejected by load executor, will retry on next poll.", e);
+            }
+        }
+    }
+
+    /**
+     * 加载完成后，保留在用资源的解析结果，并更新持久化快照
+     */
+    private void afterLoad() {
+        ConfigParseCache cache = parseCache();
+        if (cache != null) {
+            Set<String> hashValues = new HashSet<>();
+            this.bunchesMap.values().forEach(bunches -> ConfigResourceLoader.forEachResource(bunches, (bunch, resource) -> {
+                // 只保留已计算或由未变化的此前资源沿用散列值的资源，不为此触发散列计算
+                if (resource.getComputedHashValue() != null) {
+                    hashValues.add(resource.getComputedHashValue());
+                }
+            }));
+            cache.retain(hashValues);
+        }
+
+        if (StringAide.isNotBlank(this.snapshotFile)) {
+            if (!this.pendingKeys.isEmpty()) {
+                // 快照需包含全部 key 的配置数据，延迟加载尚未完成时不写入
+                logger.debug("[Caramel.Registry] Config snapshot is not written because some keys are pending for lazy loading.");
+                return;
+            }
+            PersistentConfigSnapshot.write(new File(this.snapshotFile), this.bunchesMap, this.configHolder, this.mapKebabCamelCase);
+        }
+    }
+
+    private static void awaitQuietly(FutureTask<Void> task) {
+        try {
+            task.get();
+        } catch (CancellationException | ExecutionException e) {
+            // 仅等待其结束，结果由调用方重新加载覆盖
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 重新定位到的资源若元数据与此前的同一资源（按描述匹配，可属于其它 key）一致且可靠，则沿用其散列值，
+     * 重新加载时可直接以此命中解析缓存，无需读取内容
+     */
+    private static void inheritHashValues(Map<String, List<ConfigResourceBunch>> previous, Map<String, List<ConfigResourceBunch>> located) {
+        Map<String, ConfigResource> baselines = new HashMap<>();
+        previous.values().forEach(bunches -> bunches.forEach(bunch -> bunch.getResources().values().forEach(resource -> {
+            if (resource.getComputedHashValue() != null) {
+                baselines.putIfAbsent(resource.getDescription(), resource);
+            }
+        })));
+        if (baselines.isEmpty()) {
+            return;
+        }
+        located.values().forEach(bunches -> bunches.forEach(bunch -> bunch.getResources().values().forEach(resource -> {
+            ConfigResource baseline = baselines.get(resource.getDescription());
+            if (baseline != null && baseline != resource) {
+                resource.inheritHashValue(baseline);
+            }
+        })));
+    }
+
+    /**
+     * 比较同 key 在两次定位中的资源是否一致（合并顺序、所属 bunch、资源描述及内容），内容优先比较元数据
+     *
+     * @param compared 本次刷新中已计算散列值的资源，以描述为键，其它 key 中元数据一致的同一资源沿用其散列值，不再重复读取
+     */
+    private static boolean sameResources(List<ConfigResourceBunch> previous, List<ConfigResourceBunch> current, Map<String, ConfigResource> compared) {
+        if (previous == null) {
+            return false;
+        }
+        List<String> previousOwners = new ArrayList<>();
+        List<ConfigResource> previousResources = new ArrayList<>();
+        ConfigResourceLoader.forEachResource(previous, (bunch, resource) -> {
+            previousOwners.add(bunch.getKey());
+            previousResources.add(resource);
+        });
+        List<String> currentOwners = new ArrayList<>();
+        List<ConfigResource> currentResources = new ArrayList<>();
+        ConfigResourceLoader.forEachResource(current, (bunch, resource) -> {
+            currentOwners.add(bunch.getKey());
+            currentResources.add(resource);
+        });
+
+        if (!previousOwners.equals(currentOwners)) {
+            return false;
+        }
+        for (int i = 0; i < previousResources.size(); i++) {
+            ConfigResource previousResource = previousResources.get(i);
+            ConfigResource currentResource = currentResources.get(i);
+            if (!StringAide.equals(previousResource.getDescription(), currentResource.getDescription())) {
+                return false;
+            }
+            ConfigResource sibling = compared.get(currentResource.getDescription());
+            if (sibling != null && sibling != currentResource && currentResource.getComputedHashValue() == null) {
+                currentResource.inheritHashValue(sibling);
+            }
+            boolean same = previousResource.isSameContent(currentResource);
+            if (currentResource.getComputedHashValue() != null) {
+                compared.putIfAbsent(currentResource.getDescription(), currentResource);
+            }
+            if (!same) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 尝试由持久化快照还原配置数据
+     *
+     * @return 是否还原成功
+     */
+    private boolean restoreSnapshot(Map<String, List<ConfigResourceBunch>> bunchesMap) {
+        if (StringAide.isBlank(this.snapshotFile)) {
+            return false;
+        }
+        if (this.echo != null && this.echo.isTrackEnabled()) {
+            // 快照中不包含配置项的合并轨迹，开启 echo.track 时需要完整加载
+            logger.debug("[Caramel.Registry] Config snapshot is skipped because echo.track is enabled.");
+            return false;
+        }
+
+        Map<String, CaramelConfig> configs = PersistentConfigSnapshot.read(new File(this.snapshotFile), bunchesMap, this.mapKebabCamelCase);
+        if (configs == null) {
+            return false;
+        }
+
+        configs.forEach((key, config) -> register(key, config.content()));
+        if (this.echo != null) {
+            bunchesMap.forEach((key, bunches) -> {
+                CaramelConfigEcho.Session session = this.echo.open(key);
+                if (session != null) {
+                    session.summary();
+                    ConfigResourceLoader.forEachResource(bunches, (bunch, resource) -> session.resource(bunch.getKey(), resource));
+                    session.content(this.configHolder.get(key));
+                    session.close();
+                }
+            });
+        }
+        logger.debug("[Caramel.Registry] Caramel config restored from snapshot: {}", this.snapshotFile);
+        return true;
+    }
+
+    /**
+     * 执行定位
+     *
+     * @param locators 定位器
+     * @param keys 需要定位的 key，为 null 表示全部 key
+     */
+    private Map<String, List<ConfigResourceBunch>> loadResourceBunches(List<ConfigResourceLocator> locators, Collection<String> keys) {
         Map<String, List<ConfigResourceBunch>> bunchesMap = new HashMap<>();
+        if (CollectionAide.isEmpty(locators)) {
+            return bunchesMap;
+        }
 
         // 根据优先级排序定位器
         Collections.sort(locators);
 
         for (ConfigResourceLocator locator : locators) {
             // 执行定位
-            Map<String, List<ConfigResourceBunch>> locatedBunchesMap = locator.locate();
+            Map<String, List<ConfigResourceBunch>> locatedBunchesMap = keys != null ? locator.locate(keys) : locator.locate();
 
             if (MapAide.isNotEmpty(locatedBunchesMap)) {
                 locatedBunchesMap.forEach((key, bunches) -> {
@@ -163,7 +725,27 @@ public class ConfigRegistry {
     }
 
     public void destroy() {
+        ConfigRefreshScheduler scheduler = this.refreshScheduler;
+        if (scheduler != null) {
+            scheduler.stop();
+            this.refreshScheduler = null;
+        }
+        ConfigResourceMonitor monitor = this.resourceMonitor;
+        if (monitor != null) {
+            monitor.stop();
+            this.resourceMonitor = null;
+        }
         configHolder.clear();
+        ConfigParseCache cache = this.parseCache;
+        if (cache != null) {
+            cache.clear();
+        }
+        this.interner.clear();
+        this.pendingKeys.values().forEach(loadTask -> loadTask.cancel(false));
+        this.pendingKeys.clear();
+        if (CollectionAide.isNotEmpty(this.locators)) {
+            this.locators.forEach(ConfigResourceLocator::destroy);
+        }
     }
 
     public boolean isEnabled() {
@@ -198,6 +780,14 @@ public class ConfigRegistry {
         this.refreshInterval = refreshInterval;
     }
 
+    public boolean isWatchEnabled() {
+        return watchEnabled;
+    }
+
+    public void setWatchEnabled(boolean watchEnabled) {
+        this.watchEnabled = watchEnabled;
+    }
+
     public boolean isMapKebabCamelCase() {
         return mapKebabCamelCase;
     }
@@ -206,6 +796,71 @@ public class ConfigRegistry {
         this.mapKebabCamelCase = mapKebabCamelCase;
     }
 
+    public boolean isParallelLoadEnabled() {
+        return parallelLoadEnabled;
+    }
+
+    public void setParallelLoadEnabled(boolean parallelLoadEnabled) {
+        this.parallelLoadEnabled = parallelLoadEnabled;
+    }
+
+    public Executor getLoadExecutor() {
+        return loadExecutor;
+    }
+
+    public void setLoadExecutor(Executor loadExecutor) {
+        this.loadExecutor = loadExecutor;
+    }
+
+    public int getParseCacheSize() {
+        return parseCacheSize;
+    }
+
+    public synchronized void setParseCacheSize(int parseCacheSize) {
+        this.parseCacheSize = parseCacheSize;
+        this.parseCache = null;
+    }
+
+    public boolean isInternEnabled() {
+        return internEnabled;
+    }
+
+    public void setInternEnabled(boolean internEnabled) {
+        this.internEnabled = internEnabled;
+    }
+
+    public Set<String> getCompactKeys() {
+        return compactKeys;
+    }
+
+    public void setCompactKeys(Set<String> compactKeys) {
+        this.compactKeys = compactKeys;
+    }
+
+    public boolean isLazyLoadEnabled() {
+        return lazyLoadEnabled;
+    }
+
+    public void setLazyLoadEnabled(boolean lazyLoadEnabled) {
+        this.lazyLoadEnabled = lazyLoadEnabled;
+    }
+
+    public boolean isLazyWarmUpEnabled() {
+        return lazyWarmUpEnabled;
+    }
+
+    public void setLazyWarmUpEnabled(boolean lazyWarmUpEnabled) {
+        this.lazyWarmUpEnabled = lazyWarmUpEnabled;
+    }
+
+    public String getSnapshotFile() {
+        return snapshotFile;
+    }
+
+    public void setSnapshotFile(String snapshotFile) {
+        this.snapshotFile = snapshotFile;
+    }
+
     public List<ConfigListener> getListeners() {
         return listeners;
     }
@@ -19,39 +19,148 @@ package com.lomcat.caramel.config;
 import com.lomcat.caramel.config.internel.PriorityComparable;
 import com.lomcat.caramel.core.io.Resource;
 import com.lomcat.caramel.core.io.ResourceHash;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.security.NoSuchAlgorithmException;
 
 /**
+ * <p>
+ *     配置资源，记录资源的元数据（修改时间、长度）及内容散列值，作为变化检测的基准。
+ * </p>
+ *
+ * <p>
+ *     变化检测优先比较元数据，只有元数据发生变化或不可用时才读取内容并计算散列值，
+ *     因此散列值延迟到首次需要时计算；元数据不可用或不可靠（修改时间距记录时间过近，在时间戳粒度内可能再次修改而不改变时间戳）时，
+ *     创建时即计算散列值作为基准。
+ * </p>
+ *
+ * <p>
+ *     加载时通过 {@link #getContent()} 一次性获取全部内容（较大的文件为内存映射，不复制到堆中），散列值由同一份内容计算，不再单独读取资源；
+ *     创建时或刷新比较内容时为计算散列值而获取的内容暂存至首次加载，因此每个资源对象最多读取一次（变化检测除外）。
+ *     元数据一致且可靠时，可由此前定位到的同一资源沿用散列值，加载时以此查找解析缓存，命中则不读取内容。
+ * </p>
+ *
  * @author Kweny
  * @since 0.0.1
  */
 public class ConfigResource implements PriorityComparable {
 
+    private static final Logger logger = LoggerFactory.getLogger(ConfigResource.class);
+
+    /** 文件系统时间戳的最大粒度，单位毫秒 */
+    private static final long TIMESTAMP_GRANULARITY_MILLIS = 2000;
+    /** 内容散列算法，仅用于变化检测和解析缓存，无需抗碰撞 */
+    private static final String HASH_ALGORITHM = ResourceHash.ALGORITHM_XXHASH64;
+
     public static ConfigResource create(Resource resource, Double priority) throws NoSuchAlgorithmException, IOException {
         return new ConfigResource(resource, priority);
     }
 
     private final Resource resource;
-    private final String hashValue;
     private final Double priority;
 
+    /** 基准元数据：修改时间，-1 表示不可用 */
+    private volatile long lastModified;
+    /** 基准元数据：内容长度，-1 表示不可用 */
+    private volatile long contentLength;
+    /** 基准元数据是否足以判断内容未变化 */
+    private volatile boolean metadataReliable;
+    /** 内容散列值，延迟计算 */
+    private volatile String hashValue;
+    /** 创建时为计算散列值而获取的内容，首次加载时交由解析器使用后释放 */
+    private volatile ByteBuffer content;
+
     public ConfigResource(Resource resource, Double priority) throws NoSuchAlgorithmException, IOException {
         this.resource = resource;
-        this.hashValue = resource.getHashValue(ResourceHash.ALGORITHM_SHA256);
         this.priority = priority;
+        this.lastModified = lastModified(resource);
+        this.contentLength = contentLength(resource);
+        this.metadataReliable = isReliable(this.lastModified, this.contentLength);
+        if (!this.metadataReliable) {
+            ByteBuffer content = resource.asByteBuffer();
+            this.hashValue = hashValue(content);
+            this.content = content;
+        }
     }
 
     public Resource getResource() {
         return this.resource;
     }
 
+    /**
+     * 获取内容散列值，首次调用时读取内容并计算
+     *
+     * @return 内容散列值，读取失败时返回 null
+     */
     public String getHashValue() {
+        String hashValue = this.hashValue;
+        if (hashValue == null) {
+            synchronized (this) {
+                hashValue = this.hashValue;
+                if (hashValue == null) {
+                    hashValue = computeHashValue();
+                    this.hashValue = hashValue;
+                }
+            }
+        }
+        return hashValue;
+    }
+
+    /**
+     * 获取资源的全部内容，并以此内容更新散列值，使散列值与实际加载的内容一致
+     *
+     * @return 资源全部内容的只读缓冲区，见 {@link Resource#asByteBuffer()}
+     * @throws IOException 读取失败
+     */
+    public ByteBuffer getContent() throws IOException {
+        ByteBuffer content;
+        synchronized (this) {
+            content = this.content;
+            this.content = null;
+        }
+        if (content == null) {
+            content = this.resource.asByteBuffer();
+            try {
+                this.hashValue = hashValue(content);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IOException(String.format("Error hashing config resource: %s", this.resource), e);
+            }
+        }
+        return content;
+    }
+
+    /**
+     * 获取已计算（或由元数据一致的同一资源沿用）的内容散列值，不触发计算
+     */
+    String getComputedHashValue() {
         return this.hashValue;
     }
 
+    /**
+     * 释放暂存的内容，解析结果命中缓存而无需读取内容时调用
+     */
+    void releaseContent() {
+        this.content = null;
+    }
+
+    /**
+     * @return 基准修改时间，-1 表示不可用
+     */
+    public long getLastModified() {
+        return this.lastModified;
+    }
+
+    /**
+     * @return 基准内容长度，-1 表示不可用
+     */
+    public long getContentLength() {
+        return this.contentLength;
+    }
+
     public Double getPriority() {
         return this.priority;
     }
@@ -60,6 +169,86 @@ public class ConfigResource implements PriorityComparable {
         return this.resource.getInputStream();
     }
 
+    /**
+     * 检查资源自创建以来是否发生变化，资源已不存在、无法读取或内容散列值不一致均视为发生变化。
+     * 元数据与基准一致且可靠时直接判定未变化，不读取内容
+     *
+     * @return 是否发生变化
+     */
+    public boolean isChanged() {
+        long currentLastModified = lastModified(this.resource);
+        long currentContentLength = contentLength(this.resource);
+        if (this.metadataReliable && currentLastModified == this.lastModified && currentContentLength == this.contentLength) {
+            return false;
+        }
+
+        String baseline = this.hashValue;
+        if (baseline == null) {
+            // 基准散列值尚未计算（元数据可靠时才会延迟计算），元数据变化即视为内容变化
+            return true;
+        }
+        String current = computeHashValue();
+        if (current == null || !current.equals(baseline)) {
+            return true;
+        }
+
+        // 内容未变化（如仅修改了时间戳），更新元数据基准，之后的检查无需再读取内容
+        this.lastModified = currentLastModified;
+        this.contentLength = currentContentLength;
+        this.metadataReliable = isReliable(currentLastModified, currentContentLength);
+        return false;
+    }
+
+    /**
+     * @return 基准元数据是否足以判断内容未变化
+     */
+    boolean isMetadataReliable() {
+        return this.metadataReliable;
+    }
+
+    /**
+     * 比较两次定位到的同一资源的内容是否一致，元数据一致且可靠时不读取内容，并由此前的资源沿用散列值
+     */
+    boolean isSameContent(ConfigResource other) {
+        if (other.inheritHashValue(this)) {
+            return true;
+        }
+        // 此前的基准散列值未计算时，无法确认其加载时的内容，视为不一致
+        String baseline = this.hashValue;
+        if (baseline == null) {
+            return false;
+        }
+        // 内容不一致时随即重新加载，读取的内容暂存至加载时使用，不再重复读取
+        String current = other.hashValue != null ? other.hashValue : other.stashContent();
+        if (baseline.equals(current)) {
+            other.releaseContent();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 元数据与此前定位到的同一资源的基准一致且均可靠时，内容与其一致，沿用其已计算的散列值，无需读取内容
+     *
+     * @param previous 此前定位到的同一资源
+     * @return 元数据是否一致且可靠
+     */
+    boolean inheritHashValue(ConfigResource previous) {
+        if (!this.metadataReliable || !previous.metadataReliable
+                || this.lastModified != previous.lastModified || this.contentLength != previous.contentLength) {
+            return false;
+        }
+        String baseline = previous.hashValue;
+        if (baseline != null) {
+            synchronized (this) {
+                if (this.hashValue == null) {
+                    this.hashValue = baseline;
+                }
+            }
+        }
+        return true;
+    }
+
     public String getDescription() {
         return this.resource.getDescription();
     }
@@ -68,4 +257,57 @@ public class ConfigResource implements PriorityComparable {
     public String toString() {
         return this.resource.toString();
     }
+
+    /**
+     * 读取全部内容并计算散列值，内容暂存至首次加载
+     *
+     * @return 内容散列值，读取失败时返回 null
+     */
+    private String stashContent() {
+        try {
+            ByteBuffer content = this.resource.asByteBuffer();
+            String hashValue = hashValue(content);
+            synchronized (this) {
+                this.hashValue = hashValue;
+                this.content = content;
+            }
+            return hashValue;
+        } catch (IOException | NoSuchAlgorithmException e) {
+            logger.warn(String.format("[Caramel.Resource] Error hashing config resource: %s", this.resource), e);
+            return null;
+        }
+    }
+
+    private String computeHashValue() {
+        try {
+            return this.resource.getHashValue(HASH_ALGORITHM);
+        } catch (IOException | NoSuchAlgorithmException e) {
+            logger.warn(String.format("[Caramel.Resource] Error hashing config resource: %s", this.resource), e);
+            return null;
+        }
+    }
+
+    private static String hashValue(ByteBuffer content) throws NoSuchAlgorithmException, IOException {
+        return ResourceHash.toHex(ResourceHash.hashBytes(content, HASH_ALGORITHM));
+    }
+
+    private static boolean isReliable(long lastModified, long contentLength) {
+        return lastModified > 0 && contentLength >= 0 && System.currentTimeMillis() - lastModified >= TIMESTAMP_GRANULARITY_MILLIS;
+    }
+
+    private static long lastModified(Resource resource) {
+        try {
+            return resource.lastModified();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private static long contentLength(Resource resource) {
+        try {
+            return resource.contentLength();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
 }
@@ -97,6 +97,16 @@ public class ConfigResourceBunch implements PriorityComparable {
         return this.refreshEnabled;
     }
 
+    /**
+     * 是否需要自动刷新：由 bunch 自身的设置决定，未设置时取全局设置
+     *
+     * @param defaultRefreshEnabled 全局设置
+     * @return 是否需要自动刷新
+     */
+    public boolean isRefreshEnabled(boolean defaultRefreshEnabled) {
+        return this.refreshEnabled != null ? this.refreshEnabled : defaultRefreshEnabled;
+    }
+
     double getSoftPriority() {
         return this.softPriority;
     }
@@ -18,15 +18,24 @@ package com.lomcat.caramel.config;
 
 import com.lomcat.caramel.config.exception.ConfigLoadException;
 import com.lomcat.caramel.config.listener.ConfigListener;
-import com.lomcat.caramel.core.assist.StringAide;
 import com.typesafe.config.Config;
 import com.typesafe.config.ConfigFactory;
-import com.typesafe.config.ConfigValue;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicReference;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
+import java.util.function.BiConsumer;
 
 /**
  * 配置文件资源加载器
@@ -44,6 +53,8 @@ class ConfigResourceLoader {
     private final Map<String, List<ConfigResourceBunch>> bunchesMap;
     private final CaramelConfigEcho echo;
     private final List<ConfigListener> listeners;
+    /** 本次加载中已读取内容的资源，以描述为键，供其它 key 中元数据一致的同一资源沿用散列值 */
+    private final Map<String, ConfigResource> loadedResources = new ConcurrentHashMap<>();
 
     ConfigResourceLoader(ConfigRegistry registry, Map<String, List<ConfigResourceBunch>> bunchesMap, CaramelConfigEcho echo, List<ConfigListener> listeners) {
         this.registry = registry;
@@ -64,116 +75,227 @@ class ConfigResourceLoader {
         最终 后加载的高优先级配置项 将覆盖 先加载的低优先级配置项
 
         串型-驼峰命名映射：当新项和旧项的名称去除分隔符并忽略大小写后相等，则使用新项目的 名和值 替换旧项
+
+        并行加载：各 key 之间相互独立，开启后每个 key 作为一个任务提交至执行器，
+        各 key 的 echo 事件逐行输出，summary、track 行可能交错，content 仍保证同 key 连续
          */
 
-        bunchesMap.forEach((key, bunches) -> {
-            // 根据优先级进行排序 Bunch
-            Collections.sort(bunches);
-
-            StringBuilder echoBuilder = new StringBuilder(String.format("[Caramel.ResourceLoader] Echo config resource loading process for key '%s'...\n", key));
-            __echo_Summary_LoadFromResources(echoBuilder, key);
-
-            AtomicReference<Config> keyConfig = new AtomicReference<>(); // 当前 Key 的 Config
-            bunches.forEach(bunch -> { // bunch：某key下的某个bunch
-                List<ConfigResource> resources = new ArrayList<>(bunch.getResources().values());
-                Collections.sort(resources);
-
-                resources.forEach(resource -> { // resource：当前bunch下的一个resource
-                    __echo_Summary_Resource(echoBuilder, bunch.getKey(), resource);
-
-                    try (InputStreamReader reader = new InputStreamReader(resource.getInputStream())) {
-                        Config resourceConfig = ConfigFactory.parseReader(reader);
-                        if (keyConfig.get() == null) {
-                            keyConfig.set(resourceConfig);
-                            __echo_Track_NewConfig(echoBuilder, bunch.getKey(), resourceConfig);
-                        } else {
-                            resourceConfig.entrySet().forEach(entry -> { // resourceConfig：当前resource对应的配置数据；entry：当前配置数据中的一个配置项
-                                String existedPropertyName = null;
-                                Object existedPropertyValue = null;
-                                if (this.registry.isMapKebabCamelCase()) {
-                                    // 如果否开启了串型和驼峰命名的映射
-                                    String newNameForEqual = entry.getKey().replace("-", "").toLowerCase();
-                                    for (Map.Entry<String, ConfigValue> existedProperty : keyConfig.get().entrySet()) {
-                                        String existedNameForEqual = existedProperty.getKey().replace("-", "").toLowerCase();
-                                        if (StringAide.equals(newNameForEqual, existedNameForEqual)) {
-                                            existedPropertyName = existedProperty.getKey();
-                                            existedPropertyValue = existedProperty.getValue().unwrapped();
-                                        }
-                                    }
-                                    if (existedPropertyName != null) {
-                                        // 如果已存在同名配置项，删除旧项并添加新项
-                                        keyConfig.set(keyConfig.get().withoutPath(existedPropertyName).withValue(entry.getKey(), entry.getValue()));
-                                    } else {
-                                        keyConfig.set(keyConfig.get().withValue(entry.getKey(), entry.getValue()));
-                                    }
-                                } else {
-                                    if (keyConfig.get().hasPath(entry.getKey())) {
-                                        existedPropertyName = entry.getKey();
-                                        existedPropertyValue = keyConfig.get().getValue(existedPropertyName).unwrapped();
-                                    }
-                                    keyConfig.set(keyConfig.get().withValue(entry.getKey(), entry.getValue()));
-                                }
-                                __echo_Track_RenewConfig(echoBuilder, bunch.getKey(), entry.getKey(), entry.getValue().unwrapped(), existedPropertyName, existedPropertyValue);
-                            });
-                        }
-                    } catch (Exception e) {
-                        throw new ConfigLoadException(String.format("[Caramel.ResourceLoader] Error reading config resource: %s", resource), e);
-                    }
-                });
-            });
+        if (this.registry.isParallelLoadEnabled() && bunchesMap.size() > 1) {
+            loadInParallel();
+        } else {
+            bunchesMap.forEach(this::loadKey);
+        }
+    }
 
-            this.registry.register(new CaramelConfig(key, keyConfig.get()));
-            __echo_Content(echoBuilder, registry.get(key));
+    private Executor loadExecutor() {
+        return this.registry.getLoadExecutor() != null ? this.registry.getLoadExecutor() : ForkJoinPool.commonPool();
+    }
+
+    private void loadInParallel() {
+        Executor executor = loadExecutor();
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>(bunchesMap.size());
+        bunchesMap.forEach((key, bunches) -> futures.add(CompletableFuture.runAsync(() -> loadKey(key, bunches), executor)));
 
-            if (echo.isEchoEnabled()) {
-                echo.echo(echoBuilder.toString());
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof ConfigLoadException) {
+                throw (ConfigLoadException) e.getCause();
             }
+            throw new ConfigLoadException("[Caramel.ResourceLoader] Error loading config resources in parallel", e.getCause());
+        }
+    }
+
+    /**
+     * 按合并顺序（外层 bunch 优先级、内层 resource 优先级，均从低到高）遍历同 key 的全部资源
+     */
+    static void forEachResource(List<ConfigResourceBunch> bunches, BiConsumer<ConfigResourceBunch, ConfigResource> action) {
+        // 根据优先级进行排序 Bunch
+        Collections.sort(bunches);
+        bunches.forEach(bunch -> { // bunch：某key下的某个bunch
+            List<ConfigResource> bunchResources = new ArrayList<>(bunch.getResources().values());
+            Collections.sort(bunchResources);
+            bunchResources.forEach(resource -> action.accept(bunch, resource));
+        });
+    }
+
+    private void loadKey(String key, List<ConfigResourceBunch> bunches) {
+        // 未启用 echo 时 session 为 null，不产生任何打印相关的开销
+        CaramelConfigEcho.Session session = echo.open(key);
+        if (session != null) {
+            session.summary();
+        }
+
+        // 按合并顺序展开当前 key 的全部资源
+        List<ConfigResourceBunch> owners = new ArrayList<>();
+        List<ConfigResource> resources = new ArrayList<>();
+        forEachResource(bunches, (bunch, resource) -> {
+            owners.add(bunch);
+            resources.add(resource);
         });
+
+        // 并行模式下，资源的读取和解析提前提交至执行器，合并仍严格按上述顺序进行
+        List<FutureTask<Config>> parseTasks = null;
+        if (this.registry.isParallelLoadEnabled() && resources.size() > 1) {
+            Executor executor = loadExecutor();
+            parseTasks = new ArrayList<>(resources.size());
+            for (ConfigResource resource : resources) {
+                FutureTask<Config> parseTask = new FutureTask<>(() -> parseResource(resource));
+                parseTasks.add(parseTask);
+                executor.execute(parseTask);
+            }
+        }
+
+        // 当前 Key 的配置数据合并器，所有资源合并完成后一次性构建 Config
+        ConfigContentMerger merger = new ConfigContentMerger(this.registry.isMapKebabCamelCase(), session != null && echo.isTrackEnabled());
+        try {
+            for (int i = 0; i < resources.size(); i++) {
+                ConfigResourceBunch bunch = owners.get(i);
+                ConfigResource resource = resources.get(i); // resource：当前bunch下的一个resource
+                if (session != null) {
+                    session.resource(bunch.getKey(), resource);
+                }
+
+                Config resourceConfig = parseTasks != null ? awaitParsed(parseTasks.get(i), resource) : parseResource(resource);
+                try {
+                    if (!merger.isSeeded()) {
+                        merger.seed(resourceConfig);
+                        if (session != null) {
+                            session.newProperties(bunch.getKey(), resourceConfig);
+                        }
+                    } else {
+                        resourceConfig.entrySet().forEach(entry -> { // resourceConfig：当前resource对应的配置数据；entry：当前配置数据中的一个配置项
+                            ConfigContentMerger.Overwritten overwritten = merger.merge(entry.getKey(), entry.getValue());
+                            if (session != null) {
+                                session.property(bunch.getKey(), entry.getKey(), entry.getValue(),
+                                        overwritten != null ? overwritten.getName() : null, overwritten != null ? overwritten.getValue() : null);
+                            }
+                        });
+                    }
+                } catch (Exception e) {
+                    throw new ConfigLoadException(String.format("[Caramel.ResourceLoader] Error reading config resource: %s", resource), e);
+                }
+            }
+        } finally {
+            if (parseTasks != null) {
+                // 发生异常时取消尚未执行的解析任务，正常结束时全部任务均已完成，此操作无影响
+                parseTasks.forEach(parseTask -> parseTask.cancel(false));
+            }
+        }
+
+        CaramelConfig caramelConfig = this.registry.register(key, merger.build());
+        if (session != null) {
+            session.content(caramelConfig);
+            session.close();
+        }
     }
 
-    private void __echo_Summary_LoadFromResources(StringBuilder builder, Object... args) {
-        if (echo.isEchoEnabled() && echo.isSummaryEnabled()) {
-            // 启用了 echo.summary，构建 summary 日志内容
-            builder.append(String.format("\tLoad CaramelConfig(%s) from resources...\n", args));
+    /**
+     * <p>
+     *     散列值已知（创建时已计算，或由元数据一致的此前资源、本次加载中已读取的同一资源沿用）时，先以其查找解析缓存，未命中时才读取内容；
+     * </p>
+     * <p>
+     *     否则一次性获取资源内容，散列值（解析缓存的键）和解析均基于这一份内容。
+     * </p>
+     */
+    private Config parseResource(ConfigResource resource) {
+        ConfigParseCache parseCache = this.registry.parseCache();
+        if (parseCache == null) {
+            return parseContent(resource, readContent(resource));
+        }
+
+        if (resource.getComputedHashValue() == null) {
+            ConfigResource loaded = this.loadedResources.get(resource.getDescription());
+            if (loaded != null) {
+                resource.inheritHashValue(loaded);
+            }
+        }
+        try {
+            if (resource.getComputedHashValue() != null) {
+                return parseCache.get(resource, () -> parseContent(resource, readContent(resource)));
+            }
+            ByteBuffer content = readContent(resource);
+            return parseCache.get(resource, () -> parseContent(resource, content));
+        } finally {
+            // 命中缓存时不会使用创建时暂存的内容
+            resource.releaseContent();
         }
     }
 
-    private void __echo_Summary_Resource(StringBuilder builder, Object... args) {
-        if (echo.isEchoEnabled() && echo.isSummaryEnabled()) {
-            // 启用了 echo.summary，构建 summary 日志内容
-            builder.append(String.format("\t\tCaramelConfig(%s) << %s\n", args));
+    private ByteBuffer readContent(ConfigResource resource) {
+        ByteBuffer content;
+        try {
+            content = resource.getContent();
+        } catch (IOException e) {
+            throw new ConfigLoadException(String.format("[Caramel.ResourceLoader] Error reading config resource: %s", resource), e);
         }
+        this.loadedResources.putIfAbsent(resource.getDescription(), resource);
+        return content;
     }
 
-    private void __echo_Track_NewConfig(StringBuilder builder, String bunchKey, Config resourceConfig) {
-        if (echo.isEchoEnabled() && echo.isTrackEnabled()) {
-            // 启用了 echo.track， 构建 track 日志内容
-            resourceConfig.entrySet().forEach(entry ->
-                    builder.append(String.format("\t\t\tNew property into CaramelConfig(%s) << %s=%s\n", bunchKey, entry.getKey(), entry.getValue().unwrapped())));
+    /**
+     * 直接由内容缓冲区（可能为内存映射）逐块解码解析，不先复制为字节数组
+     */
+    private Config parseContent(ConfigResource resource, ByteBuffer content) {
+        try (Reader reader = new InputStreamReader(new ByteBufferInputStream(content.duplicate()), StandardCharsets.UTF_8)) {
+            return ConfigFactory.parseReader(reader);
+        } catch (Exception | InternalError e) {
+            // InternalError：映射的文件在解析期间被截断
+            throw new ConfigLoadException(String.format("[Caramel.ResourceLoader] Error reading config resource: %s", resource), e);
         }
     }
 
-    private void __echo_Track_RenewConfig(StringBuilder builder, String bunchKey, String propertyName, Object propertyValue, String oldName, Object oldValue) {
-        if (echo.isEchoEnabled() && echo.isTrackEnabled()) {
-            // 启用了 echo.track， 构建 track 日志内容
-            if (oldName != null) {
-                builder.append(String.format("\t\t\tRenew property into CaramelConfig(%s) << %s=%s (Overwritten: %s=%s)\n", bunchKey, propertyName, propertyValue, oldName, oldValue));
-            } else {
-                builder.append(String.format("\t\t\tNew property into CaramelConfig(%s) << %s=%s\n", bunchKey, propertyName, propertyValue));
+    /**
+     * 获取资源的解析结果。若解析任务尚未被执行器调度，则直接在当前线程执行，
+     * 避免执行器被 key 级任务占满时等待解析任务而产生死锁。
+     */
+    private Config awaitParsed(FutureTask<Config> parseTask, ConfigResource resource) {
+        parseTask.run();
+        try {
+            return parseTask.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ConfigLoadException) {
+                throw (ConfigLoadException) e.getCause();
             }
+            throw new ConfigLoadException(String.format("[Caramel.ResourceLoader] Error reading config resource: %s", resource), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConfigLoadException(String.format("[Caramel.ResourceLoader] Interrupted while reading config resource: %s", resource), e);
         }
     }
 
-    private void __echo_Content(StringBuilder builder, CaramelConfig caramelConfig) {
-        if (echo.isEchoEnabled() && echo.isContentEnabled()) {
-            // 启用了 echo.content， 构建 content 日志内容
-            if (caramelConfig != null) {
-                // 排序
-                List<String> lines = caramelConfig.content().entrySet().stream().map(entry -> entry.getKey() + "=" + entry.getValue().unwrapped() + "\n").sorted().collect(Collectors.toList());
+    /**
+     * 读取 {@link ByteBuffer} 剩余内容的输入流
+     */
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return this.buffer.hasRemaining() ? this.buffer.get() & 0xFF : -1;
+        }
 
-                builder.append(String.format("\tContent of CaramelConfig(%s):\n", caramelConfig.getKey()));
-                lines.forEach(line -> builder.append("\t\t").append(line));
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!this.buffer.hasRemaining()) {
+                return -1;
             }
+            int count = Math.min(length, this.buffer.remaining());
+            this.buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return this.buffer.remaining();
         }
     }
 
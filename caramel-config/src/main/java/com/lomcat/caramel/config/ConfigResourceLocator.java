@@ -18,6 +18,9 @@ package com.lomcat.caramel.config;
 
 import com.lomcat.caramel.config.internel.PriorityComparable;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -46,4 +49,46 @@ public interface ConfigResourceLocator extends PriorityComparable {
      */
     Map<String, List<ConfigResourceBunch>> locate();
 
+    /**
+     * 只查找指定 key 的配置文件资源，供只刷新部分 key 时使用。
+     * 默认执行完整定位后筛选，能够按 key 定位的定位器应覆盖此方法，以免重新定位无关的 key。
+     *
+     * @param keys 需要定位的 key
+     * @return 以配置数据 key 为键，以同 key 配置文件资源集合为值的映射，只包含指定的 key
+     */
+    default Map<String, List<ConfigResourceBunch>> locate(Collection<String> keys) {
+        Map<String, List<ConfigResourceBunch>> located = locate();
+        Map<String, List<ConfigResourceBunch>> scoped = new HashMap<>();
+        if (located != null) {
+            keys.forEach(key -> {
+                List<ConfigResourceBunch> bunches = located.get(key);
+                if (bunches != null) {
+                    scoped.put(key, bunches);
+                }
+            });
+        }
+        return scoped;
+    }
+
+    /**
+     * 定位器在本地目录中查找配置文件的全部位置，包括尚不存在的目录及配置文件，供资源监视器发现之后新建的配置文件。
+     *
+     * @return 查找位置的集合，默认为空
+     */
+    default Collection<ConfigResourceProbe> getProbes() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * 使定位器缓存的可能变化的定位结果失效，资源监视器发现文件变化后、重新定位之前调用
+     */
+    default void invalidate() {
+    }
+
+    /**
+     * 释放定位器持有的资源（如打开的 jar 文件），配置数据注册器销毁时调用
+     */
+    default void destroy() {
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2018-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.lomcat.caramel.config;
+
+import java.io.File;
+import java.util.Objects;
+
+/**
+ * <p>
+ *     定位器在本地目录中查找配置文件的位置：目录、配置文件名称（不含扩展名）及所属的 key。
+ * </p>
+ *
+ * <p>
+ *     无论目录及配置文件当前是否存在，定位器都会给出其查找的全部位置，
+ *     资源监视器据此发现之后新建的配置文件，包括启动时尚未定位到任何资源的 key。
+ * </p>
+ *
+ * @author Kweny
+ * @since 0.0.1
+ */
+public class ConfigResourceProbe {
+    private final File directory;
+    private final String name;
+    private final String key;
+    private final Boolean refreshEnabled;
+
+    public ConfigResourceProbe(File directory, String name, String key, Boolean refreshEnabled) {
+        this.directory = directory;
+        this.name = name;
+        this.key = key;
+        this.refreshEnabled = refreshEnabled;
+    }
+
+    /**
+     * @return 查找配置文件的目录，可能尚不存在
+     */
+    public File getDirectory() {
+        return this.directory;
+    }
+
+    /**
+     * @return 配置文件名称，不含扩展名
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    public String getKey() {
+        return this.key;
+    }
+
+    /**
+     * 是否开启自动刷新，同 {@link ConfigResourceBunch#isRefreshEnabled(boolean)}
+     */
+    public boolean isRefreshEnabled(boolean defaultRefreshEnabled) {
+        return this.refreshEnabled != null ? this.refreshEnabled : defaultRefreshEnabled;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ConfigResourceProbe)) {
+            return false;
+        }
+        ConfigResourceProbe other = (ConfigResourceProbe) o;
+        return this.directory.equals(other.directory) && this.name.equals(other.name)
+                && Objects.equals(this.key, other.key) && Objects.equals(this.refreshEnabled, other.refreshEnabled);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.directory, this.name, this.key, this.refreshEnabled);
+    }
+
+    @Override
+    public String toString() {
+        return this.key + ":" + new File(this.directory, this.name);
+    }
+}
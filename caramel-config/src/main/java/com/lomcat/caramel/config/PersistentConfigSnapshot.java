@@ -0,0 +1,346 @@
+/*
+ * Copyright 2018-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.lomcat.caramel.config;
+
+import com.lomcat.caramel.core.assist.StringAide;
+import com.typesafe.config.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * <p>
+ *     合并完成的配置数据的持久化快照，以紧凑的二进制格式保存全部 key 的 {@link CaramelConfig} 内容，
+ *     以及每个 key 按合并顺序排列的资源指纹（所属 bunch、描述、长度、修改时间、元数据是否可靠、散列值），后者同时作为 echo 打印资源来源的依据。
+ * </p>
+ *
+ * <p>
+ *     下次启动时，若定位到的资源与快照中的指纹一致，则直接由快照还原配置数据，无需再次解析和合并。
+ *     指纹校验优先比较长度和修改时间，仅当二者不可用、不可靠（记录时修改时间距当时过近）或不一致时才比较散列值；
+ *     写入时不为指纹触发散列计算，未计算的散列值记为空，此时只能通过元数据匹配。
+ * </p>
+ *
+ * @author Kweny
+ * @since 0.0.1
+ */
+class PersistentConfigSnapshot {
+
+    private static final Logger logger = LoggerFactory.getLogger(PersistentConfigSnapshot.class);
+
+    private static final int MAGIC = 0xCA7A3E1C;
+    private static final int VERSION = 2;
+
+    static final byte TYPE_OBJECT = 0;
+    static final byte TYPE_LIST = 1;
+    static final byte TYPE_STRING = 2;
+    static final byte TYPE_INT = 3;
+    static final byte TYPE_LONG = 4;
+    static final byte TYPE_DOUBLE = 5;
+    static final byte TYPE_BOOLEAN = 6;
+    static final byte TYPE_NULL = 7;
+
+    /**
+     * 写入快照。写入过程中发生的任何错误只记录日志，不影响配置数据的正常使用。
+     *
+     * @param file 快照文件
+     * @param bunchesMap 本次加载的配置资源
+     * @param configs 本次加载完成的配置数据
+     * @param mapKebabCamelCase 本次加载是否开启了串型-驼峰命名映射
+     */
+    static void write(File file, Map<String, List<ConfigResourceBunch>> bunchesMap, Map<String, CaramelConfig> configs, boolean mapKebabCamelCase) {
+        File directory = file.getAbsoluteFile().getParentFile();
+        try {
+            if (directory != null && !directory.exists() && !directory.mkdirs()) {
+                throw new IOException("Cannot create directory " + directory);
+            }
+            File temp = File.createTempFile(file.getName(), ".tmp", directory);
+            try {
+                try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 64 * 1024))) {
+                    output.writeInt(MAGIC);
+                    output.writeInt(VERSION);
+                    output.writeBoolean(mapKebabCamelCase);
+                    output.writeInt(bunchesMap.size());
+                    for (Map.Entry<String, List<ConfigResourceBunch>> entry : bunchesMap.entrySet()) {
+                        CaramelConfig caramelConfig = configs.get(entry.getKey());
+                        writeString(output, entry.getKey());
+                        writeFingerprints(output, entry.getValue());
+                        output.writeBoolean(caramelConfig != null && caramelConfig.content() != null);
+                        if (caramelConfig != null && caramelConfig.content() != null) {
+                            writeValue(output, caramelConfig.content().root());
+                        }
+                    }
+                }
+                Path target = file.toPath();
+                try {
+                    Files.move(temp.toPath(), target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (IOException e) {
+                    Files.move(temp.toPath(), target, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temp.toPath());
+            }
+            logger.debug("[Caramel.Snapshot] Config snapshot written: {}", file);
+        } catch (IOException | ConfigException e) {
+            logger.warn(String.format("[Caramel.Snapshot] Error writing config snapshot: %s", file), e);
+        }
+    }
+
+    /**
+     * 读取快照
+     *
+     * @param file 快照文件
+     * @param bunchesMap 本次定位到的配置资源
+     * @param mapKebabCamelCase 本次加载是否开启了串型-驼峰命名映射
+     * @return 由快照还原的配置数据；若快照不存在、已损坏或与本次定位到的资源不一致，则返回 null
+     */
+    static Map<String, CaramelConfig> read(File file, Map<String, List<ConfigResourceBunch>> bunchesMap, boolean mapKebabCamelCase) {
+        if (!file.isFile()) {
+            return null;
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new RemainingInputStream(new FileInputStream(file), file.length()), 64 * 1024))) {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION || input.readBoolean() != mapKebabCamelCase) {
+                logger.debug("[Caramel.Snapshot] Config snapshot is incompatible: {}", file);
+                return null;
+            }
+            int keyCount = input.readInt();
+            if (keyCount != bunchesMap.size()) {
+                logger.debug("[Caramel.Snapshot] Config snapshot is stale (keys changed): {}", file);
+                return null;
+            }
+
+            Map<String, CaramelConfig> configs = new HashMap<>(keyCount * 4 / 3 + 1);
+            for (int i = 0; i < keyCount; i++) {
+                String key = readString(input);
+                List<ConfigResourceBunch> bunches = bunchesMap.get(key);
+                if (bunches == null || !matchFingerprints(input, bunches)) {
+                    logger.debug("[Caramel.Snapshot] Config snapshot is stale (resources of key '{}' changed): {}", key, file);
+                    return null;
+                }
+                Config content = input.readBoolean() ? ((ConfigObject) readValue(input)).toConfig() : null;
+                configs.put(key, new CaramelConfig(key, content));
+            }
+            return configs;
+        } catch (IOException | RuntimeException e) {
+            logger.warn(String.format("[Caramel.Snapshot] Error reading config snapshot: %s", file), e);
+            return null;
+        }
+    }
+
+    private static void writeFingerprints(DataOutputStream output, List<ConfigResourceBunch> bunches) throws IOException {
+        List<ConfigResourceBunch> owners = new ArrayList<>();
+        List<ConfigResource> resources = new ArrayList<>();
+        ConfigResourceLoader.forEachResource(bunches, (bunch, resource) -> {
+            owners.add(bunch);
+            resources.add(resource);
+        });
+
+        output.writeInt(resources.size());
+        for (int i = 0; i < resources.size(); i++) {
+            ConfigResource resource = resources.get(i);
+            writeString(output, owners.get(i).getKey());
+            writeString(output, resource.getDescription());
+            output.writeLong(resource.getContentLength());
+            output.writeLong(resource.getLastModified());
+            output.writeBoolean(resource.isMetadataReliable());
+            writeString(output, resource.getComputedHashValue() != null ? resource.getComputedHashValue() : "");
+        }
+    }
+
+    private static boolean matchFingerprints(DataInputStream input, List<ConfigResourceBunch> bunches) throws IOException {
+        List<ConfigResourceBunch> owners = new ArrayList<>();
+        List<ConfigResource> resources = new ArrayList<>();
+        ConfigResourceLoader.forEachResource(bunches, (bunch, resource) -> {
+            owners.add(bunch);
+            resources.add(resource);
+        });
+
+        int count = input.readInt();
+        boolean matched = count == resources.size();
+        // 即使已不匹配也需读完当前 key 的指纹，但此时调用方将直接放弃快照，因此可提前返回
+        for (int i = 0; i < count && matched; i++) {
+            ConfigResource resource = resources.get(i);
+            String bunchKey = readString(input);
+            String description = readString(input);
+            long contentLength = input.readLong();
+            long lastModified = input.readLong();
+            boolean metadataReliable = input.readBoolean();
+            String hashValue = readString(input);
+
+            matched = StringAide.equals(bunchKey, owners.get(i).getKey()) && StringAide.equals(description, resource.getDescription());
+            if (matched) {
+                // 优先比较元数据，元数据不可用、不可靠或不一致时再比较散列值
+                boolean metadataAvailable = metadataReliable && resource.isMetadataReliable() && contentLength >= 0 && lastModified > 0;
+                matched = (metadataAvailable && contentLength == resource.getContentLength() && lastModified == resource.getLastModified())
+                        || (!hashValue.isEmpty() && hashValue.equals(resource.getHashValue()));
+            }
+        }
+        return matched;
+    }
+
+    static void writeValue(DataOutputStream output, ConfigValue value) throws IOException {
+        switch (value.valueType()) {
+            case OBJECT:
+                ConfigObject object = (ConfigObject) value;
+                output.writeByte(TYPE_OBJECT);
+                output.writeInt(object.size());
+                for (Map.Entry<String, ConfigValue> entry : object.entrySet()) {
+                    writeString(output, entry.getKey());
+                    writeValue(output, entry.getValue());
+                }
+                break;
+            case LIST:
+                ConfigList list = (ConfigList) value;
+                output.writeByte(TYPE_LIST);
+                output.writeInt(list.size());
+                for (ConfigValue element : list) {
+                    writeValue(output, element);
+                }
+                break;
+            case NUMBER:
+                Object number = value.unwrapped();
+                if (number instanceof Integer) {
+                    output.writeByte(TYPE_INT);
+                    output.writeInt((Integer) number);
+                } else if (number instanceof Long) {
+                    output.writeByte(TYPE_LONG);
+                    output.writeLong((Long) number);
+                } else {
+                    output.writeByte(TYPE_DOUBLE);
+                    output.writeDouble(((Number) number).doubleValue());
+                }
+                break;
+            case BOOLEAN:
+                output.writeByte(TYPE_BOOLEAN);
+                output.writeBoolean((Boolean) value.unwrapped());
+                break;
+            case NULL:
+                output.writeByte(TYPE_NULL);
+                break;
+            default:
+                output.writeByte(TYPE_STRING);
+                writeString(output, (String) value.unwrapped());
+                break;
+        }
+    }
+
+    static ConfigValue readValue(DataInputStream input) throws IOException {
+        byte type = input.readByte();
+        switch (type) {
+            case TYPE_OBJECT:
+                int size = checkLength(input, input.readInt());
+                Map<String, Object> object = new HashMap<>(size * 4 / 3 + 1);
+                for (int i = 0; i < size; i++) {
+                    String name = readString(input);
+                    object.put(name, readValue(input));
+                }
+                return ConfigValueFactory.fromMap(object);
+            case TYPE_LIST:
+                int length = checkLength(input, input.readInt());
+                List<ConfigValue> list = new ArrayList<>(length);
+                for (int i = 0; i < length; i++) {
+                    list.add(readValue(input));
+                }
+                return ConfigValueFactory.fromIterable(list);
+            case TYPE_STRING:
+                return ConfigValueFactory.fromAnyRef(readString(input));
+            case TYPE_INT:
+                return ConfigValueFactory.fromAnyRef(input.readInt());
+            case TYPE_LONG:
+                return ConfigValueFactory.fromAnyRef(input.readLong());
+            case TYPE_DOUBLE:
+                return ConfigValueFactory.fromAnyRef(input.readDouble());
+            case TYPE_BOOLEAN:
+                return ConfigValueFactory.fromAnyRef(input.readBoolean());
+            case TYPE_NULL:
+                return ConfigValueFactory.fromAnyRef(null);
+            default:
+                throw new IOException("Unknown value type in config snapshot: " + type);
+        }
+    }
+
+    /** {@link DataOutputStream#writeUTF(String)} 限制 64KB，此处以长度前缀的 UTF-8 字节写入字符串 */
+    static void writeString(DataOutputStream output, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    static String readString(DataInputStream input) throws IOException {
+        byte[] bytes = new byte[checkLength(input, input.readInt())];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 校验由快照读出的长度（字节数或元素个数）。每个元素至少占用 1 字节，因此长度不能超过剩余的字节数；
+     * 快照被截断或损坏时抛出 IOException 以回退到正常加载，而不是按错误的长度分配内存
+     */
+    private static int checkLength(DataInputStream input, int length) throws IOException {
+        if (length < 0 || length > input.available()) {
+            throw new IOException("Corrupted config snapshot: invalid length " + length);
+        }
+        return length;
+    }
+
+    /**
+     * 记录剩余字节数的输入流，使 {@link #available()} 准确返回文件中尚未读取的字节数
+     */
+    private static class RemainingInputStream extends FilterInputStream {
+        private long remaining;
+
+        private RemainingInputStream(InputStream in, long length) {
+            super(in);
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                this.remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            int count = super.read(bytes, offset, length);
+            if (count > 0) {
+                this.remaining -= count;
+            }
+            return count;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            this.remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.max(0, Math.min(Integer.MAX_VALUE, this.remaining));
+        }
+    }
+}
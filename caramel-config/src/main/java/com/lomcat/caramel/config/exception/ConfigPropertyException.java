@@ -0,0 +1,44 @@
+/*
+ * Copyright 2018-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.lomcat.caramel.config.exception;
+
+/**
+ * Caramel 配置项读取异常，配置项不存在或无法转换为所需类型时抛出
+ *
+ * @author Kweny
+ * @since 0.0.1
+ */
+public class ConfigPropertyException extends RuntimeException {
+    private static final long serialVersionUID = -3926281740514395370L;
+
+    public ConfigPropertyException() {
+        super();
+    }
+
+    public ConfigPropertyException(String message) {
+        super(message);
+    }
+
+    public ConfigPropertyException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public ConfigPropertyException(Throwable cause) {
+        super(cause);
+    }
+
+}
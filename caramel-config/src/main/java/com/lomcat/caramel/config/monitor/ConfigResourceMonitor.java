@@ -16,11 +16,56 @@
 
 package com.lomcat.caramel.config.monitor;
 
+import com.lomcat.caramel.config.ConfigResource;
+import com.lomcat.caramel.config.ConfigResourceBunch;
+import com.lomcat.caramel.config.ConfigResourceProbe;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
 /**
- * TODO-Kweny ConfigRefreshMonitor
+ * <p>
+ *     配置资源监视器，资源发生变化时即时通知需要刷新的 key，以代替定时轮询。
+ * </p>
+ *
+ * <p>
+ *     监视器只负责其当前 {@link #supports(ConfigResource) 支持} 的资源，其余资源（如 jar 中的资源、远程 URL 资源、所在目录无法监视的资源）
+ *     仍由定时轮询检查；监视器负责的资源也会以较低的频率轮询，以防监视遗漏事件。
+ * </p>
  *
  * @author Kweny
  * @since 0.0.1
  */
 public interface ConfigResourceMonitor {
+
+    /**
+     * 启动监视器
+     *
+     * @param changeHandler 资源变化的处理器，参数为资源发生变化的 key
+     */
+    void start(Consumer<Set<String>> changeHandler);
+
+    /**
+     * 当前是否正在监视指定的资源，结果可能随监视状态变化（如所在目录被删除），每次轮询时重新判断
+     *
+     * @param resource 配置资源
+     * @return 是否正在监视
+     */
+    boolean supports(ConfigResource resource);
+
+    /**
+     * 更新监视对象，每次定位（初始化或刷新）完成后调用，以最近一次调用为准
+     *
+     * @param bunchesMap 需要监视的配置资源，结构为 < key, bunch 的集合 >
+     * @param probes 定位器查找配置文件的位置，用于发现之后新建的配置文件
+     */
+    void watch(Map<String, List<ConfigResourceBunch>> bunchesMap, Collection<ConfigResourceProbe> probes);
+
+    /**
+     * 停止监视器
+     */
+    void stop();
 }
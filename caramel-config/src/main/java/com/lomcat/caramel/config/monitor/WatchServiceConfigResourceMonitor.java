@@ -0,0 +1,373 @@
+/*
+ * Copyright 2018-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.lomcat.caramel.config.monitor;
+
+import com.lomcat.caramel.config.ConfigResource;
+import com.lomcat.caramel.config.ConfigResourceBunch;
+import com.lomcat.caramel.config.ConfigResourceProbe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * <p>
+ *     基于 {@link WatchService} 的配置资源监视器，监视文件系统中的配置资源。
+ * </p>
+ *
+ * <p>
+ *     所有资源所在的目录以及定位器的查找目录注册到同一个 {@link WatchService}，由一个守护线程等待事件，
+ *     并将事件对应的文件映射回所属的 key：
+ *     <ul>
+ *         <li>已定位的资源文件被修改、删除或重新创建时，刷新该资源所属的 key；</li>
+ *         <li>目录中新建的文件名（去除扩展名）与该目录中查找的配置文件名称相同时，刷新所属的 key，
+ *         包括启动时尚未定位到任何资源的 key；</li>
+ *         <li>查找目录尚不存在时监视其上级目录，该目录被创建后开始监视，并检查其中已有的文件；</li>
+ *         <li>资源文件是符号链接（或位于符号链接目录中）时，同时监视链接所在的目录和实际文件所在的目录，
+ *         链接所在目录中的任何事件都刷新该资源所属的 key，以发现替换链接目标的更新方式（如 Kubernetes ConfigMap 替换 {@code ..data} 链接）。</li>
+ *     </ul>
+ *     同一批次内连续到达的事件（如编辑器保存时的多次写入）在短暂的静默期后合并为一次通知。
+ * </p>
+ *
+ * <p>
+ *     只有所在目录已成功注册且仍然有效的文件资源才受支持：目录注册失败、被删除或不再可访问时，其中的资源由定时轮询检查，
+ *     目录失效时还会刷新其中资源所属的 key，并在目录仍然存在时重新注册。jar 中的资源、远程 URL 资源等不受支持。
+ * </p>
+ *
+ * @author Kweny
+ * @since 0.0.1
+ */
+public class WatchServiceConfigResourceMonitor implements ConfigResourceMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(WatchServiceConfigResourceMonitor.class);
+
+    /** 合并连续事件的静默期，单位毫秒 */
+    private static final long QUIET_PERIOD_MILLIS = 50;
+
+    private final Object lock = new Object();
+
+    private volatile WatchService watchService;
+    private Thread watchThread;
+    private Consumer<Set<String>> changeHandler;
+
+    /** 已注册的目录，由 {@link #lock} 保护修改，{@link #supports(ConfigResource)} 无锁读取 */
+    private final Map<Path, WatchKey> directories = new ConcurrentHashMap<>();
+    /** 尚不存在的查找目录，监视其上级目录以发现其创建，由 {@link #lock} 保护 */
+    private final Set<Path> pendingDirectories = new HashSet<>();
+    /** < 资源文件的绝对路径及符号链接的实际路径, 所属 key > */
+    private volatile Map<Path, Set<String>> fileKeys = Collections.emptyMap();
+    /** < 符号链接资源文件的绝对路径, 实际路径 > */
+    private volatile Map<Path, Path> linkTargets = Collections.emptyMap();
+    /** < 符号链接资源文件所在的目录, 所属 key >，目录中的任何事件都刷新这些 key */
+    private volatile Map<Path, Set<String>> linkDirectoryKeys = Collections.emptyMap();
+    /** < 目录, < 配置文件名称, 所属 key > >，目录中新建同名文件时刷新这些 key */
+    private volatile Map<Path, Map<String, Set<String>>> probeNameKeys = Collections.emptyMap();
+
+    @Override
+    public void start(Consumer<Set<String>> changeHandler) {
+        synchronized (this.lock) {
+            if (this.watchService != null) {
+                return;
+            }
+            try {
+                this.watchService = FileSystems.getDefault().newWatchService();
+            } catch (IOException e) {
+                logger.warn("[Caramel.Monitor] Cannot create watch service, config resources will be polled instead.", e);
+                return;
+            }
+            this.changeHandler = changeHandler;
+            this.watchThread = new Thread(this::run, "caramel-config-watch");
+            this.watchThread.setDaemon(true);
+            this.watchThread.start();
+        }
+    }
+
+    @Override
+    public boolean supports(ConfigResource resource) {
+        if (this.watchService == null) {
+            return false;
+        }
+        Path file = toPath(resource);
+        if (file == null || !this.fileKeys.containsKey(file) || !isWatching(file.getParent())) {
+            return false;
+        }
+        Path target = this.linkTargets.get(file);
+        return target == null || isWatching(target.getParent());
+    }
+
+    private boolean isWatching(Path directory) {
+        WatchKey watchKey = directory != null ? this.directories.get(directory) : null;
+        return watchKey != null && watchKey.isValid();
+    }
+
+    @Override
+    public void watch(Map<String, List<ConfigResourceBunch>> bunchesMap, Collection<ConfigResourceProbe> probes) {
+        synchronized (this.lock) {
+            if (this.watchService == null) {
+                return;
+            }
+
+            Map<Path, Set<String>> fileKeys = new HashMap<>();
+            Map<Path, Path> linkTargets = new HashMap<>();
+            Map<Path, Set<String>> linkDirectoryKeys = new HashMap<>();
+            Map<Path, Map<String, Set<String>>> probeNameKeys = new HashMap<>();
+            Set<Path> watchedDirectories = new HashSet<>();
+            Set<Path> pendingDirectories = new HashSet<>();
+            bunchesMap.forEach((key, bunches) -> bunches.forEach(bunch -> bunch.getResources().values().forEach(resource -> {
+                Path file = toPath(resource);
+                if (file == null || file.getParent() == null) {
+                    return;
+                }
+                fileKeys.computeIfAbsent(file, k -> new HashSet<>()).add(key);
+                watchedDirectories.add(file.getParent());
+                addNameKey(probeNameKeys, file.getParent(), stripExtension(file.getFileName().toString()), key);
+
+                Path target = toRealPath(file);
+                if (target != null && !target.equals(file) && target.getParent() != null) {
+                    linkTargets.put(file, target);
+                    fileKeys.computeIfAbsent(target, k -> new HashSet<>()).add(key);
+                    linkDirectoryKeys.computeIfAbsent(file.getParent(), k -> new HashSet<>()).add(key);
+                    watchedDirectories.add(target.getParent());
+                }
+            })));
+            if (probes != null) {
+                probes.forEach(probe -> {
+                    Path directory = probe.getDirectory().toPath().toAbsolutePath().normalize();
+                    addNameKey(probeNameKeys, directory, probe.getName(), probe.getKey());
+                    if (Files.isDirectory(directory)) {
+                        watchedDirectories.add(directory);
+                    } else if (directory.getParent() != null && Files.isDirectory(directory.getParent())) {
+                        pendingDirectories.add(directory);
+                        watchedDirectories.add(directory.getParent());
+                    }
+                });
+            }
+
+            Iterator<Map.Entry<Path, WatchKey>> iterator = this.directories.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Path, WatchKey> entry = iterator.next();
+                if (!watchedDirectories.contains(entry.getKey()) || !entry.getValue().isValid()) {
+                    entry.getValue().cancel();
+                    iterator.remove();
+                }
+            }
+            watchedDirectories.forEach(this::register);
+
+            this.pendingDirectories.clear();
+            this.pendingDirectories.addAll(pendingDirectories);
+            this.fileKeys = fileKeys;
+            this.linkTargets = linkTargets;
+            this.linkDirectoryKeys = linkDirectoryKeys;
+            this.probeNameKeys = probeNameKeys;
+            logger.debug("[Caramel.Monitor] Watching config directories: {}, pending directories: {}", this.directories.keySet(), pendingDirectories);
+        }
+    }
+
+    /**
+     * 注册目录，已注册且有效时忽略；注册失败的目录不受监视，其中的资源由轮询检查。调用方须持有 {@link #lock}
+     */
+    private void register(Path directory) {
+        WatchKey registered = this.directories.get(directory);
+        if (registered != null && registered.isValid()) {
+            return;
+        }
+        try {
+            this.directories.put(directory, directory.register(this.watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE));
+        } catch (NoSuchFileException e) {
+            // 目录在定位之后被删除
+            this.directories.remove(directory);
+            logger.debug("[Caramel.Monitor] Directory no longer exists: {}", directory);
+        } catch (IOException e) {
+            this.directories.remove(directory);
+            logger.warn(String.format("[Caramel.Monitor] Cannot watch directory, its config resources will be polled instead: %s", directory), e);
+        }
+    }
+
+    @Override
+    public void stop() {
+        synchronized (this.lock) {
+            if (this.watchService == null) {
+                return;
+            }
+            try {
+                this.watchService.close();
+            } catch (IOException e) {
+                logger.debug("[Caramel.Monitor] Error closing watch service.", e);
+            }
+            this.watchService = null;
+            this.watchThread = null;
+            this.directories.clear();
+            this.pendingDirectories.clear();
+            this.fileKeys = Collections.emptyMap();
+            this.linkTargets = Collections.emptyMap();
+            this.linkDirectoryKeys = Collections.emptyMap();
+            this.probeNameKeys = Collections.emptyMap();
+        }
+    }
+
+    private void run() {
+        WatchService service;
+        synchronized (this.lock) {
+            service = this.watchService;
+        }
+        try {
+            while (true) {
+                Set<String> changedKeys = new HashSet<>();
+                collect(service.take(), changedKeys);
+                // 合并静默期内连续到达的事件
+                WatchKey next;
+                while ((next = service.poll(QUIET_PERIOD_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    collect(next, changedKeys);
+                }
+                if (!changedKeys.isEmpty()) {
+                    logger.debug("[Caramel.Monitor] Config resources changed, keys: {}", changedKeys);
+                    try {
+                        this.changeHandler.accept(changedKeys);
+                    } catch (RuntimeException e) {
+                        logger.warn(String.format("[Caramel.Monitor] Error refreshing config keys: %s", changedKeys), e);
+                    }
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            logger.debug("[Caramel.Monitor] Watch service closed.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void collect(WatchKey watchKey, Set<String> changedKeys) {
+        Path directory = (Path) watchKey.watchable();
+        Map<Path, Set<String>> fileKeys = this.fileKeys;
+        Map<String, Set<String>> nameKeys = this.probeNameKeys.getOrDefault(directory, Collections.emptyMap());
+        Set<String> linkKeys = this.linkDirectoryKeys.get(directory);
+        for (WatchEvent<?> event : watchKey.pollEvents()) {
+            if (linkKeys != null) {
+                changedKeys.addAll(linkKeys);
+            }
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                // 事件丢失，无法确定具体的文件，刷新该目录下的全部已知资源及查找的配置文件
+                addDirectoryKeys(directory, changedKeys);
+                continue;
+            }
+
+            Path file = directory.resolve((Path) event.context());
+            Set<String> keys = fileKeys.get(file);
+            if (keys != null) {
+                changedKeys.addAll(keys);
+            } else if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+                keys = nameKeys.get(stripExtension(file.getFileName().toString()));
+                if (keys != null) {
+                    changedKeys.addAll(keys);
+                }
+                directoryCreated(file, changedKeys);
+            }
+        }
+        if (!watchKey.reset()) {
+            directoryInvalidated(directory, watchKey, changedKeys);
+        }
+    }
+
+    /**
+     * 尚不存在的查找目录被创建后开始监视，并检查注册之前已在其中创建的文件
+     */
+    private void directoryCreated(Path directory, Set<String> changedKeys) {
+        synchronized (this.lock) {
+            if (this.watchService == null || !this.pendingDirectories.contains(directory) || !Files.isDirectory(directory)) {
+                return;
+            }
+            this.pendingDirectories.remove(directory);
+            register(directory);
+        }
+        Map<String, Set<String>> nameKeys = this.probeNameKeys.get(directory);
+        if (nameKeys == null) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Set<String> keys = nameKeys.get(stripExtension(file.getFileName().toString()));
+                if (keys != null) {
+                    changedKeys.addAll(keys);
+                }
+            }
+        } catch (IOException e) {
+            logger.debug("[Caramel.Monitor] Cannot list created directory: {}", directory);
+        }
+    }
+
+    /**
+     * 目录被删除或不再可访问，其中的资源视为已变化；目录仍然存在（如被重新创建）时重新注册，否则由轮询接管
+     */
+    private void directoryInvalidated(Path directory, WatchKey watchKey, Set<String> changedKeys) {
+        addDirectoryKeys(directory, changedKeys);
+        synchronized (this.lock) {
+            if (this.watchService == null || this.directories.get(directory) != watchKey) {
+                return;
+            }
+            this.directories.remove(directory);
+            if (Files.isDirectory(directory)) {
+                register(directory);
+            } else if (this.probeNameKeys.containsKey(directory) && directory.getParent() != null && Files.isDirectory(directory.getParent())) {
+                this.pendingDirectories.add(directory);
+                register(directory.getParent());
+            }
+        }
+        logger.debug("[Caramel.Monitor] Watch key invalidated, directory: {}, watching again: {}", directory, isWatching(directory));
+    }
+
+    private void addDirectoryKeys(Path directory, Set<String> changedKeys) {
+        this.fileKeys.forEach((file, keys) -> {
+            if (directory.equals(file.getParent())) {
+                changedKeys.addAll(keys);
+            }
+        });
+        this.probeNameKeys.getOrDefault(directory, Collections.emptyMap()).values().forEach(changedKeys::addAll);
+    }
+
+    private static void addNameKey(Map<Path, Map<String, Set<String>>> probeNameKeys, Path directory, String name, String key) {
+        probeNameKeys.computeIfAbsent(directory, k -> new HashMap<>()).computeIfAbsent(name, k -> new HashSet<>()).add(key);
+    }
+
+    private static String stripExtension(String filename) {
+        int extensionIndex = filename.lastIndexOf('.');
+        return extensionIndex > 0 ? filename.substring(0, extensionIndex) : filename;
+    }
+
+    private static Path toPath(ConfigResource resource) {
+        if (!resource.getResource().isFile()) {
+            return null;
+        }
+        try {
+            return resource.getResource().getFile().toPath().toAbsolutePath().normalize();
+        } catch (IOException | InvalidPathException e) {
+            return null;
+        }
+    }
+
+    private static Path toRealPath(Path file) {
+        try {
+            return file.toRealPath();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
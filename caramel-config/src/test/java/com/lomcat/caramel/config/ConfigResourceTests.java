@@ -0,0 +1,249 @@
+/*
+ * Copyright 2018-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.lomcat.caramel.config;
+
+import com.lomcat.caramel.core.io.FileSystemResource;
+import com.lomcat.caramel.core.io.Resource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link ConfigResource} 从定位到加载只读取一次资源内容：散列值与解析共用同一次读取的内容
+ *
+ * @author Kweny
+ * @since 0.0.1
+ */
+class ConfigResourceTests {
+
+    @TempDir
+    Path directory;
+
+    /**
+     * 元数据可靠（修改时间较早）时散列值延迟计算：定位时不读取内容，加载时读取一次并以同一份内容计算散列值
+     */
+    @Test
+    void readsOnceWithLazyHash() throws Exception {
+        File file = writeConfig("lazy.conf", System.currentTimeMillis() - 60_000);
+        CountingResource resource = new CountingResource(new FileSystemResource(file));
+        LocatorProbe locator = new LocatorProbe("lazy", resource);
+
+        ConfigRegistry registry = newRegistry(locator);
+        try {
+            registry.init();
+
+            assertEquals(0, locator.opensAfterLocate, "opens after locate");
+            assertEquals(1, resource.opens.get(), "opens after load");
+            assertNotNull(locator.located.getComputedHashValue());
+            assertEquals("é", registry.get("lazy").getString("name"));
+        } finally {
+            registry.destroy();
+        }
+    }
+
+    /**
+     * 元数据不可靠（刚刚修改）时散列值在创建时计算：定位时读取一次，加载时使用暂存的内容，不再读取
+     */
+    @Test
+    void readsOnceWithEagerHash() throws Exception {
+        File file = writeConfig("eager.conf", System.currentTimeMillis());
+        CountingResource resource = new CountingResource(new FileSystemResource(file));
+        LocatorProbe locator = new LocatorProbe("eager", resource);
+
+        ConfigRegistry registry = newRegistry(locator);
+        try {
+            registry.init();
+
+            assertEquals(1, locator.opensAfterLocate, "opens after locate");
+            assertEquals(1, resource.opens.get(), "opens after load");
+            assertNotNull(locator.located.getComputedHashValue());
+            assertEquals("é", registry.get("eager").getString("name"));
+        } finally {
+            registry.destroy();
+        }
+    }
+
+    /**
+     * 刷新时重新加载的 key 中，元数据未变化的资源沿用此前的散列值并命中解析缓存，不再读取；变化的资源只读取一次
+     */
+    @Test
+    void reloadReadsOnlyChangedResources() throws Exception {
+        long lastModified = System.currentTimeMillis() - 60_000;
+        CountingResource unchanged = new CountingResource(new FileSystemResource(writeConfig("unchanged.conf", lastModified)));
+        File file = writeConfig("changed.conf", lastModified);
+        CountingResource changed = new CountingResource(new FileSystemResource(file));
+        LocatorProbe locator = new LocatorProbe("reload", unchanged, changed);
+
+        ConfigRegistry registry = newRegistry(locator);
+        try {
+            registry.init();
+            assertEquals(1, unchanged.opens.get(), "unchanged opens after init");
+            assertEquals(1, changed.opens.get(), "changed opens after init");
+
+            Files.write(file.toPath(), "name = \"changed\"\n".getBytes(StandardCharsets.UTF_8));
+            assertTrue(file.setLastModified(lastModified + 5_000));
+            registry.refresh();
+
+            assertEquals(1, unchanged.opens.get(), "unchanged opens after refresh");
+            assertEquals(2, changed.opens.get(), "changed opens after refresh");
+            assertEquals("changed", registry.get("reload").getString("name"));
+            assertEquals(8, registry.get("reload").getInt("pool.max-active"));
+        } finally {
+            registry.destroy();
+        }
+    }
+
+    private File writeConfig(String filename, long lastModified) throws IOException {
+        File file = this.directory.resolve(filename).toFile();
+        Files.write(file.toPath(), "name = \"é\"\npool.max-active = 8\n".getBytes(StandardCharsets.UTF_8));
+        assertTrue(file.setLastModified(lastModified));
+        return file;
+    }
+
+    private static ConfigRegistry newRegistry(ConfigResourceLocator locator) {
+        ConfigRegistry registry = new ConfigRegistry();
+        registry.setEnabled(true);
+        registry.setLocators(new ArrayList<>(Collections.singletonList(locator)));
+        return registry;
+    }
+
+    /**
+     * 以一个 bunch 定位单个 key 的定位器，资源优先级按传入顺序递增，记录定位完成时首个资源被读取的次数
+     */
+    private static class LocatorProbe implements ConfigResourceLocator {
+        private final String key;
+        private final CountingResource[] resources;
+        private ConfigResource located;
+        private int opensAfterLocate = -1;
+
+        private LocatorProbe(String key, CountingResource... resources) {
+            this.key = key;
+            this.resources = resources;
+        }
+
+        @Override
+        public Map<String, List<ConfigResourceBunch>> locate() {
+            Map<String, ConfigResource> resources = new HashMap<>();
+            try {
+                for (int i = 0; i < this.resources.length; i++) {
+                    resources.put(this.resources[i].getDescription(), ConfigResource.create(this.resources[i], (double) i + 1));
+                }
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            this.located = resources.get(this.resources[0].getDescription());
+            this.opensAfterLocate = this.resources[0].opens.get();
+            Map<String, List<ConfigResourceBunch>> bunchesMap = new HashMap<>();
+            bunchesMap.put(this.key, new ArrayList<>(Collections.singletonList(ConfigResourceBunch.create(this.key, this.key, 1d, resources, null))));
+            return bunchesMap;
+        }
+    }
+
+    /**
+     * 统计内容读取次数的资源包装：打开输入流、打开通道以及获取全部内容（可能为内存映射）均计为一次读取
+     */
+    private static class CountingResource implements Resource {
+        private final Resource delegate;
+        private final AtomicInteger opens = new AtomicInteger();
+
+        private CountingResource(Resource delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            this.opens.incrementAndGet();
+            return this.delegate.getInputStream();
+        }
+
+        @Override
+        public ReadableByteChannel readableChannel() throws IOException {
+            this.opens.incrementAndGet();
+            return this.delegate.readableChannel();
+        }
+
+        @Override
+        public ByteBuffer asByteBuffer() throws IOException {
+            this.opens.incrementAndGet();
+            return this.delegate.asByteBuffer();
+        }
+
+        @Override
+        public boolean exists() {
+            return this.delegate.exists();
+        }
+
+        @Override
+        public boolean isFile() {
+            return this.delegate.isFile();
+        }
+
+        @Override
+        public URL getURL() throws IOException {
+            return this.delegate.getURL();
+        }
+
+        @Override
+        public URI getURI() throws IOException {
+            return this.delegate.getURI();
+        }
+
+        @Override
+        public File getFile() throws IOException {
+            return this.delegate.getFile();
+        }
+
+        @Override
+        public long contentLength() throws IOException {
+            return this.delegate.contentLength();
+        }
+
+        @Override
+        public long lastModified() throws IOException {
+            return this.delegate.lastModified();
+        }
+
+        @Override
+        public Resource createRelative(String relativePath) throws IOException {
+            return new CountingResource(this.delegate.createRelative(relativePath));
+        }
+
+        @Override
+        public String getFilename() {
+            return this.delegate.getFilename();
+        }
+
+        @Override
+        public String getDescription() {
+            return this.delegate.getDescription();
+        }
+    }
+}
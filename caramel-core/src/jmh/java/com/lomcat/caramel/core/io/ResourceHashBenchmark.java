@@ -0,0 +1,85 @@
+/*
+ * Copyright 2018-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.lomcat.caramel.core.io;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ResourceHash} 各算法对不同大小文件的散列性能基准，
+ * {@link #legacySha256()} 为原实现（1KB 堆缓冲区读取输入流，{@link BigInteger} 转换十六进制）的对照。
+ *
+ * @author Kweny
+ * @since 0.0.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResourceHashBenchmark {
+
+    @Param({"CRC32", "XXH64", "SHA-256"})
+    private String algorithm;
+
+    @Param({"1024", "65536", "1048576"})
+    private int size;
+
+    private File file;
+    private Resource resource;
+
+    @Setup
+    public void setup() throws IOException {
+        byte[] content = new byte[size];
+        new Random(size).nextBytes(content);
+        file = File.createTempFile("caramel-benchmark", ".bin");
+        Files.write(file.toPath(), content);
+        resource = new FileSystemResource(file);
+    }
+
+    @TearDown
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public byte[] hashBytes() throws Exception {
+        return ResourceHash.hashBytes(resource, algorithm);
+    }
+
+    @Benchmark
+    public String legacySha256() throws Exception {
+        try (InputStream is = resource.getInputStream()) {
+            MessageDigest digest = MessageDigest.getInstance(ResourceHash.ALGORITHM_SHA256);
+            byte[] buffer = new byte[1024];
+            int length;
+            while ((length = is.read(buffer, 0, buffer.length)) != -1) {
+                digest.update(buffer, 0, length);
+            }
+            return new BigInteger(1, digest.digest()).toString(16);
+        }
+    }
+}
@@ -28,4 +28,10 @@ public class AssertAide {
         }
     }
 
+    public static void isTrue(boolean expression, String message) {
+        if (!expression) {
+            throw new IllegalArgumentException(message);
+        }
+    }
+
 }
\ No newline at end of file
@@ -29,6 +29,7 @@ public class NamingConvention {
     public static final Snake SNAKE = new Snake();
     public static final Kebab KEBAB = new Kebab();
     public static final Separator SEPARATOR = new Separator();
+    public static final Relaxed RELAXED = new Relaxed();
 
     // TODO-Kweny replace with surito beginning
     private static boolean isEmpty(String input) {
@@ -240,6 +241,76 @@ public class NamingConvention {
         }
     }
 
+    public static class Relaxed {
+        /**
+         * <p>
+         *     宽松匹配的比较名称：去除分隔符 '-' 和 '_' 并转为小写，不同命名风格的同一名称转换后相同。
+         *     <ul>
+         *         <li>max-active to maxactive</li>
+         *         <li>max_active to maxactive</li>
+         *         <li>maxActive to maxactive</li>
+         *         <li>MAX_ACTIVE to maxactive</li>
+         *     </ul>
+         * </p>
+         */
+        public String normalize(String input) {
+            int length = getLength(input);
+            if (length == 0) {
+                return input;
+            }
+
+            final StringBuilder builder = new StringBuilder(length);
+            for (int i = 0; i < length; i++) {
+                char chr = input.charAt(i);
+                if (chr != SEPARATOR_KEBAB && chr != SEPARATOR_SNAKE) {
+                    builder.append(Character.toLowerCase(chr));
+                }
+            }
+            return builder.toString();
+        }
+
+        /**
+         * 宽松比较名称的散列值，等于 {@code normalize(input).hashCode()}，但无需创建比较名称
+         */
+        public int hash(String input) {
+            int hash = 0;
+            int length = getLength(input);
+            for (int i = 0; i < length; i++) {
+                char chr = input.charAt(i);
+                if (chr != SEPARATOR_KEBAB && chr != SEPARATOR_SNAKE) {
+                    hash = 31 * hash + Character.toLowerCase(chr);
+                }
+            }
+            return hash;
+        }
+
+        /**
+         * 两个名称的宽松比较名称是否相同，等价于 {@code normalize(a).equals(normalize(b))}，但无需创建比较名称
+         */
+        public boolean matches(String a, String b) {
+            int lengthA = getLength(a);
+            int lengthB = getLength(b);
+            int i = 0;
+            int j = 0;
+            while (true) {
+                while (i < lengthA && (a.charAt(i) == SEPARATOR_KEBAB || a.charAt(i) == SEPARATOR_SNAKE)) {
+                    i++;
+                }
+                while (j < lengthB && (b.charAt(j) == SEPARATOR_KEBAB || b.charAt(j) == SEPARATOR_SNAKE)) {
+                    j++;
+                }
+                if (i == lengthA || j == lengthB) {
+                    return i == lengthA && j == lengthB;
+                }
+                if (Character.toLowerCase(a.charAt(i)) != Character.toLowerCase(b.charAt(j))) {
+                    return false;
+                }
+                i++;
+                j++;
+            }
+        }
+    }
+
     // ----- commons -----
     private static String camel2Separator(String input, char separator, int mode) {
         int length = getLength(input);
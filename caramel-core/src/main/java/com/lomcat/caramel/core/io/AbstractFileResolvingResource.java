@@ -23,6 +23,7 @@ import java.net.HttpURLConnection;
 import java.net.URI;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.file.NoSuchFileException;
@@ -189,6 +190,23 @@ public abstract class AbstractFileResolvingResource extends AbstractResource {
         }
     }
 
+    /**
+     * 对于文件系统中的文件，此实现将较大的文件映射到内存；其余资源读入堆缓冲区。
+     *
+     * @see ResourceUtils#mapReadOnly(java.nio.file.Path)
+     */
+    @Override
+    public ByteBuffer asByteBuffer() throws IOException {
+        if (isFile()) {
+            try {
+                return ResourceUtils.mapReadOnly(getFile().toPath());
+            } catch (FileNotFoundException ex) {
+                // 与 readableChannel() 一致，交由 URL 读取
+            }
+        }
+        return super.asByteBuffer();
+    }
+
     @Override
     public long contentLength() throws IOException {
         URL url = getURL();
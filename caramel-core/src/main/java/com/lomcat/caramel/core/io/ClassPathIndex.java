@@ -0,0 +1,692 @@
+/*
+ * Copyright 2018-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.lomcat.caramel.core.io;
+
+import com.lomcat.caramel.core.assist.StringAide;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * <p>
+ *     类路径索引。构建时按类加载器的委派顺序（父加载器在前）收集类路径的全部根，一次性列出其中每个 jar 的条目，
+ *     之后类路径资源的 {@code exists()}、{@code getURL()} 以及通配符查找均由内存中的索引完成，
+ *     不再逐个 jar 线性查找；读取内容时直接使用构建时打开并缓存的 {@link JarFile} 句柄，不再重新打开归档。
+ * </p>
+ *
+ * <p>
+ *     支持的类路径根：
+ *     <ul>
+ *         <li>文件系统中的 jar，包括其 MANIFEST 中 {@code Class-Path} 引用的 jar；</li>
+ *         <li>jar 中的目录，如 Spring Boot 可执行 jar 的 {@code BOOT-INF/classes!/}，与外层 jar 共用同一句柄；</li>
+ *         <li>jar 中嵌套的 jar，如 {@code BOOT-INF/lib/*.jar!/}，条目在构建时列出，内容仍经由根 URL（即类加载器的 URL 处理器）读取；</li>
+ *         <li>文件系统中的目录：目录内容在运行期间可能变化，因此不列入索引，查找时直接检查文件系统。</li>
+ *     </ul>
+ * </p>
+ *
+ * <p>
+ *     若类加载器链中存在无法枚举的类加载器或类路径根，则索引不完整（{@link #isComplete()} 返回 false），
+ *     此时索引中未找到的资源仍需由类加载器查找。JDK 自身的资源（引导类加载器和平台类加载器）不在索引范围内。
+ * </p>
+ *
+ * <p>
+ *     索引构建完成后不再变化，可在多个线程中共享；不再使用时应调用 {@link #close()} 关闭缓存的 jar 句柄。
+ * </p>
+ *
+ * @author Kweny
+ * @since 0.0.1
+ */
+public class ClassPathIndex implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClassPathIndex.class);
+
+    private static final String PATH_SEPARATOR = "/";
+
+    /**
+     * 构建指定类加载器的类路径索引
+     *
+     * @param classLoader 类加载器，为 null 时使用默认类加载器
+     * @return 类路径索引
+     */
+    public static ClassPathIndex build(ClassLoader classLoader) {
+        return build(classLoader, null);
+    }
+
+    /**
+     * 构建指定类加载器的类路径索引，各 jar 的条目在指定的执行器中并行列出
+     *
+     * @param classLoader 类加载器，为 null 时使用默认类加载器
+     * @param executor 列出 jar 条目的执行器，为 null 时在当前线程中依次列出
+     * @return 类路径索引
+     */
+    public static ClassPathIndex build(ClassLoader classLoader, Executor executor) {
+        ClassLoader classLoaderToUse = classLoader != null ? classLoader : ClassUtils.getDefaultClassLoader();
+        long start = System.nanoTime();
+        ClassPathIndex index = new ClassPathIndex(classLoaderToUse);
+        try {
+            index.collectRoots();
+            index.indexRoots(executor);
+        } catch (RuntimeException ex) {
+            index.close();
+            throw ex;
+        }
+        logger.debug("[Caramel.ClassPathIndex] Indexed {} class path roots ({} entries) in {} ms, complete: {}",
+                index.roots.size(), index.entries.size(), (System.nanoTime() - start) / 1_000_000, index.complete);
+        return index;
+    }
+
+    private final ClassLoader classLoader;
+    /** 类路径根，按类加载器查找资源的顺序排列 */
+    private final List<Root> roots = new ArrayList<>();
+    /** 文件系统目录根在 {@link #roots} 中的下标 */
+    private int[] directoryRoots = new int[0];
+    /** < 条目名称, 首个包含该条目的归档根在 {@link #roots} 中的下标 > */
+    private final Map<String, Integer> entries = new HashMap<>();
+    /** < 目录名称（以 "/" 结尾，根目录为空串）, 归档根中该目录下直接包含的文件名 > */
+    private final Map<String, Set<String>> children = new HashMap<>();
+    /** 按文件打开的 jar 句柄，同一归档中的多个根共用一个句柄 */
+    private final Map<File, JarFile> jarFiles = new LinkedHashMap<>();
+    /** 并行列出条目时可能由执行器线程修改 */
+    private volatile boolean complete = true;
+
+    private ClassPathIndex(ClassLoader classLoader) {
+        this.classLoader = classLoader;
+    }
+
+    /**
+     * 返回构建此索引的类加载器
+     */
+    public ClassLoader getClassLoader() {
+        return this.classLoader;
+    }
+
+    /**
+     * 索引是否覆盖了类加载器的全部类路径根。仅当索引完整时，索引中未找到的资源才可以确定不存在
+     */
+    public boolean isComplete() {
+        return this.complete;
+    }
+
+    /**
+     * 检查类路径资源是否存在
+     *
+     * @param path 类路径，不以 "/" 开头
+     * @return 索引中是否存在此资源
+     */
+    public boolean exists(String path) {
+        return locate(path) != null;
+    }
+
+    /**
+     * 获取类路径资源的 URL，与类加载器返回的 URL 一致（即由第一个包含此资源的类路径根提供）
+     *
+     * @param path 类路径，不以 "/" 开头
+     * @return 资源的 URL，索引中不存在时返回 null
+     */
+    public URL getURL(String path) {
+        Location location = locate(path);
+        if (location == null) {
+            return null;
+        }
+        try {
+            return location.root.getURL(location.name);
+        } catch (IOException ex) {
+            logger.debug("[Caramel.ClassPathIndex] Cannot build URL of class path resource: {}", path, ex);
+            return null;
+        }
+    }
+
+    /**
+     * 打开类路径资源的输入流，jar 中的资源直接由缓存的 jar 句柄读取
+     *
+     * @param path 类路径，不以 "/" 开头
+     * @return 资源的输入流，索引中不存在时返回 null
+     * @throws IOException 读取失败
+     */
+    public InputStream getInputStream(String path) throws IOException {
+        Location location = locate(path);
+        return location != null ? location.root.getInputStream(location.name) : null;
+    }
+
+    /**
+     * 列出类路径目录下直接包含的文件名，合并全部类路径根
+     *
+     * @param directory 类路径目录，不以 "/" 开头，根目录为空串
+     * @return 文件名的集合
+     */
+    public Set<String> list(String directory) {
+        String directoryToUse = directory.isEmpty() || directory.endsWith(PATH_SEPARATOR) ? directory : directory + PATH_SEPARATOR;
+        Set<String> names = new HashSet<>(this.children.getOrDefault(directoryToUse, Collections.emptySet()));
+        for (int rootIndex : this.directoryRoots) {
+            ((DirectoryRoot) this.roots.get(rootIndex)).list(directoryToUse, names);
+        }
+        return names;
+    }
+
+    /**
+     * <p>
+     *     查找与通配符模式匹配的类路径资源：{@code ?} 匹配一个字符，{@code *} 匹配路径中一段内的任意字符，{@code **} 匹配任意多段路径。
+     * </p>
+     * <p>
+     *     同名资源只返回一次，即类加载器查找时得到的那一个。
+     * </p>
+     *
+     * @param pattern 类路径模式，如 {@code config/**}{@code /*.conf}，不以 "/" 开头
+     * @return 匹配的类路径，按名称排序
+     */
+    public List<String> find(String pattern) {
+        Pattern regex = toRegex(pattern);
+        Set<String> paths = new TreeSet<>();
+        this.entries.keySet().forEach(name -> {
+            if (!name.endsWith(PATH_SEPARATOR) && regex.matcher(name).matches()) {
+                paths.add(name);
+            }
+        });
+        String prefix = literalPrefix(pattern);
+        for (int rootIndex : this.directoryRoots) {
+            ((DirectoryRoot) this.roots.get(rootIndex)).find(prefix, regex, paths);
+        }
+        return new ArrayList<>(paths);
+    }
+
+    /**
+     * 关闭缓存的 jar 句柄
+     */
+    @Override
+    public void close() {
+        synchronized (this.jarFiles) {
+            this.jarFiles.values().forEach(jarFile -> {
+                try {
+                    jarFile.close();
+                } catch (IOException ex) {
+                    logger.debug("[Caramel.ClassPathIndex] Error closing jar file: {}", jarFile.getName(), ex);
+                }
+            });
+            this.jarFiles.clear();
+        }
+    }
+
+    /**
+     * 按类加载器查找资源的顺序定位资源：目录根实时检查文件系统，归档根使用索引，
+     * 因此只需检查排在首个包含此资源的归档根之前的目录根
+     */
+    private Location locate(String path) {
+        if (path == null) {
+            return null;
+        }
+        // 空路径（类路径根）与类加载器一致，解析为首个目录根
+        Integer archiveRoot = this.entries.get(path);
+        if (archiveRoot == null && !path.endsWith(PATH_SEPARATOR)) {
+            // 与 ZipFile#getEntry 一致，未找到时尝试同名目录
+            archiveRoot = this.entries.get(path + PATH_SEPARATOR);
+        }
+        int limit = archiveRoot != null ? archiveRoot : this.roots.size();
+        for (int rootIndex : this.directoryRoots) {
+            if (rootIndex >= limit) {
+                break;
+            }
+            DirectoryRoot root = (DirectoryRoot) this.roots.get(rootIndex);
+            if (root.contains(path)) {
+                return new Location(root, path);
+            }
+        }
+        return archiveRoot != null ? new Location(this.roots.get(archiveRoot), path) : null;
+    }
+
+    // ------------------------------------------------------------------------------------------------------------
+    // 构建
+    // ------------------------------------------------------------------------------------------------------------
+
+    /**
+     * 按委派顺序收集类路径根：父加载器的根在前，jar 的 MANIFEST Class-Path 紧随该 jar 之后
+     */
+    private void collectRoots() {
+        Deque<ClassLoader> chain = new ArrayDeque<>();
+        for (ClassLoader loader = this.classLoader; loader != null; loader = loader.getParent()) {
+            chain.push(loader);
+        }
+        ClassLoader systemClassLoader = ClassLoader.getSystemClassLoader();
+        ClassLoader platformClassLoader = systemClassLoader != null ? systemClassLoader.getParent() : null;
+
+        Set<String> visited = new HashSet<>();
+        List<Integer> directoryRootList = new ArrayList<>();
+        for (ClassLoader loader : chain) {
+            List<URL> urls = new ArrayList<>();
+            if (loader instanceof URLClassLoader) {
+                urls.addAll(Arrays.asList(((URLClassLoader) loader).getURLs()));
+            } else if (loader == systemClassLoader) {
+                urls.addAll(systemClassPath());
+            } else if (loader != platformClassLoader) {
+                logger.debug("[Caramel.ClassPathIndex] Cannot enumerate class path of class loader: {}", loader);
+                this.complete = false;
+            }
+            // 平台类加载器在 Java 8 中为 URLClassLoader（ext 目录），在 Java 9+ 中只提供 JDK 模块，均无需特殊处理
+
+            Deque<URL> pending = new ArrayDeque<>(urls);
+            while (!pending.isEmpty()) {
+                URL url = pending.poll();
+                if (!visited.add(url.toExternalForm())) {
+                    continue;
+                }
+                Root root = openRoot(url);
+                if (root == null) {
+                    continue;
+                }
+                if (root instanceof DirectoryRoot) {
+                    directoryRootList.add(this.roots.size());
+                }
+                this.roots.add(root);
+                List<URL> manifestClassPath = root.getManifestClassPath();
+                for (int i = manifestClassPath.size() - 1; i >= 0; i--) {
+                    pending.push(manifestClassPath.get(i));
+                }
+            }
+        }
+        this.directoryRoots = directoryRootList.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static List<URL> systemClassPath() {
+        List<URL> urls = new ArrayList<>();
+        String classPath = System.getProperty("java.class.path");
+        if (StringAide.isNotEmpty(classPath)) {
+            for (String element : classPath.split(File.pathSeparator)) {
+                if (!element.isEmpty()) {
+                    try {
+                        urls.add(new File(element).getAbsoluteFile().toURI().toURL());
+                    } catch (MalformedURLException ex) {
+                        logger.debug("[Caramel.ClassPathIndex] Ignoring malformed class path element: {}", element);
+                    }
+                }
+            }
+        }
+        return urls;
+    }
+
+    /**
+     * 根据类路径 URL 创建类路径根，URL 不存在时返回 null（类加载器同样会忽略），无法识别时将索引标记为不完整
+     */
+    private Root openRoot(URL url) {
+        try {
+            if (ResourceUtils.URL_PROTOCOL_FILE.equals(url.getProtocol())) {
+                File file = ResourceUtils.getFile(url);
+                if (file.isDirectory()) {
+                    return new DirectoryRoot(file.toPath());
+                } else if (file.isFile()) {
+                    URL base = new URL(ResourceUtils.URL_PREFIX_JAR + url.toExternalForm() + ResourceUtils.JAR_URL_SEPARATOR);
+                    return new ArchiveRoot(base, openJarFile(file), "", true);
+                }
+                return null;
+            } else if (ResourceUtils.URL_PROTOCOL_JAR.equals(url.getProtocol())) {
+                return openNestedRoot(url);
+            }
+        } catch (IOException ex) {
+            logger.debug("[Caramel.ClassPathIndex] Cannot open class path root: {}", url, ex);
+            return null;
+        }
+        logger.debug("[Caramel.ClassPathIndex] Unsupported class path root: {}", url);
+        this.complete = false;
+        return null;
+    }
+
+    /**
+     * 解析 {@code jar:file:/app.jar!/}、{@code jar:file:/app.jar!/BOOT-INF/classes!/}、{@code jar:file:/app.jar!/BOOT-INF/lib/a.jar!/} 形式的根
+     */
+    private Root openNestedRoot(URL url) throws IOException {
+        String location = url.toExternalForm().substring(ResourceUtils.URL_PREFIX_JAR.length());
+        if (!location.endsWith(ResourceUtils.JAR_URL_SEPARATOR)) {
+            location = location + ResourceUtils.JAR_URL_SEPARATOR;
+        }
+        URL base = new URL(url, ResourceUtils.URL_PREFIX_JAR + location);
+        String[] segments = location.substring(0, location.length() - ResourceUtils.JAR_URL_SEPARATOR.length()).split(ResourceUtils.JAR_URL_SEPARATOR);
+        URL archiveUrl = new URL(segments[0]);
+        if (!ResourceUtils.URL_PROTOCOL_FILE.equals(archiveUrl.getProtocol()) || segments.length > 2) {
+            logger.debug("[Caramel.ClassPathIndex] Unsupported class path root: {}", url);
+            this.complete = false;
+            return null;
+        }
+        File file = ResourceUtils.getFile(archiveUrl);
+        if (!file.isFile()) {
+            return null;
+        }
+        JarFile jarFile = openJarFile(file);
+        if (segments.length == 1) {
+            return new ArchiveRoot(base, jarFile, "", true);
+        }
+        String entryName = segments[1];
+        ZipEntry entry = jarFile.getEntry(entryName);
+        if (entry == null || entry.isDirectory()) {
+            // 归档中的目录
+            return new ArchiveRoot(base, jarFile, entryName.endsWith(PATH_SEPARATOR) ? entryName : entryName + PATH_SEPARATOR, false);
+        }
+        return new NestedArchiveRoot(base, jarFile, entry);
+    }
+
+    private JarFile openJarFile(File file) throws IOException {
+        synchronized (this.jarFiles) {
+            JarFile jarFile = this.jarFiles.get(file);
+            if (jarFile == null) {
+                jarFile = new JarFile(file);
+                this.jarFiles.put(file, jarFile);
+            }
+            return jarFile;
+        }
+    }
+
+    /**
+     * 列出各归档根的条目（可并行），再按根的顺序合并，先出现的条目优先
+     */
+    private void indexRoots(Executor executor) {
+        List<Collection<String>> names = new ArrayList<>(this.roots.size());
+        if (executor != null) {
+            List<CompletableFuture<Collection<String>>> futures = new ArrayList<>(this.roots.size());
+            for (Root root : this.roots) {
+                futures.add(CompletableFuture.supplyAsync(() -> listEntries(root), executor));
+            }
+            try {
+                futures.forEach(future -> names.add(future.join()));
+            } catch (CompletionException ex) {
+                throw new IllegalStateException("[Caramel.ClassPathIndex] Error indexing class path", ex.getCause());
+            }
+        } else {
+            this.roots.forEach(root -> names.add(listEntries(root)));
+        }
+
+        for (int rootIndex = 0; rootIndex < this.roots.size(); rootIndex++) {
+            for (String name : names.get(rootIndex)) {
+                if (this.entries.putIfAbsent(name, rootIndex) == null && !name.endsWith(PATH_SEPARATOR)) {
+                    int separatorIndex = name.lastIndexOf(PATH_SEPARATOR);
+                    this.children.computeIfAbsent(name.substring(0, separatorIndex + 1), directory -> new HashSet<>())
+                            .add(name.substring(separatorIndex + 1));
+                }
+            }
+        }
+    }
+
+    private Collection<String> listEntries(Root root) {
+        try {
+            return root.listEntries();
+        } catch (IOException ex) {
+            // 无法列出的根不参与索引，其中的资源仍可能被类加载器找到
+            logger.debug("[Caramel.ClassPathIndex] Cannot list class path root: {}", root.base, ex);
+            this.complete = false;
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * 将通配符模式转换为正则表达式
+     */
+    private static Pattern toRegex(String pattern) {
+        StringBuilder regex = new StringBuilder();
+        StringBuilder literal = new StringBuilder();
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c != '*' && c != '?') {
+                literal.append(c);
+                continue;
+            }
+            if (literal.length() > 0) {
+                regex.append(Pattern.quote(literal.toString()));
+                literal.setLength(0);
+            }
+            if (c == '?') {
+                regex.append("[^/]");
+            } else if (i + 1 < pattern.length() && pattern.charAt(i + 1) == '*') {
+                i++;
+                if (i + 1 < pattern.length() && pattern.charAt(i + 1) == '/') {
+                    // "**/" 匹配零或多段目录
+                    i++;
+                    regex.append("(?:.*/)?");
+                } else {
+                    regex.append(".*");
+                }
+            } else {
+                regex.append("[^/]*");
+            }
+        }
+        if (literal.length() > 0) {
+            regex.append(Pattern.quote(literal.toString()));
+        }
+        return Pattern.compile(regex.toString());
+    }
+
+    /**
+     * 模式中第一个通配符之前的目录部分
+     */
+    private static String literalPrefix(String pattern) {
+        int wildcardIndex = pattern.length();
+        for (int i = 0; i < pattern.length(); i++) {
+            if (pattern.charAt(i) == '*' || pattern.charAt(i) == '?') {
+                wildcardIndex = i;
+                break;
+            }
+        }
+        return pattern.substring(0, pattern.lastIndexOf(PATH_SEPARATOR, wildcardIndex - 1) + 1);
+    }
+
+    private static String encodePath(String name) throws MalformedURLException {
+        try {
+            return new URI(null, null, name, null).getRawPath();
+        } catch (URISyntaxException ex) {
+            throw new MalformedURLException(ex.getMessage());
+        }
+    }
+
+    private static class Location {
+        private final Root root;
+        private final String name;
+
+        private Location(Root root, String name) {
+            this.root = root;
+            this.name = name;
+        }
+    }
+
+    /**
+     * 类路径根
+     */
+    private abstract static class Root {
+        /** 根的 URL，资源的 URL 相对于此 URL 构建，以沿用类加载器的 URL 处理器 */
+        final URL base;
+
+        Root(URL base) {
+            this.base = base;
+        }
+
+        URL getURL(String name) throws IOException {
+            return new URL(this.base, encodePath(name));
+        }
+
+        abstract InputStream getInputStream(String name) throws IOException;
+
+        abstract Collection<String> listEntries() throws IOException;
+
+        List<URL> getManifestClassPath() {
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * 文件系统中的目录，不列入索引，查找时直接检查文件系统
+     */
+    private static class DirectoryRoot extends Root {
+        private final Path directory;
+
+        private DirectoryRoot(Path directory) throws MalformedURLException {
+            super(directory.toUri().toURL());
+            this.directory = directory;
+        }
+
+        private boolean contains(String name) {
+            return Files.exists(this.directory.resolve(name));
+        }
+
+        private void list(String directoryName, Set<String> names) {
+            Path path = directoryName.isEmpty() ? this.directory : this.directory.resolve(directoryName);
+            File[] files = path.toFile().listFiles(File::isFile);
+            if (files != null) {
+                for (File file : files) {
+                    names.add(file.getName());
+                }
+            }
+        }
+
+        private void find(String prefix, Pattern regex, Set<String> paths) {
+            Path start = prefix.isEmpty() ? this.directory : this.directory.resolve(prefix);
+            if (!Files.isDirectory(start)) {
+                return;
+            }
+            try (Stream<Path> files = Files.walk(start)) {
+                files.filter(Files::isRegularFile).forEach(file -> {
+                    String name = this.directory.relativize(file).toString().replace(File.separatorChar, '/');
+                    if (regex.matcher(name).matches()) {
+                        paths.add(name);
+                    }
+                });
+            } catch (IOException | RuntimeException ex) {
+                logger.debug("[Caramel.ClassPathIndex] Error walking class path directory: {}", start, ex);
+            }
+        }
+
+        @Override
+        InputStream getInputStream(String name) throws IOException {
+            return Files.newInputStream(this.directory.resolve(name));
+        }
+
+        @Override
+        Collection<String> listEntries() {
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * jar 或 jar 中的目录，条目由缓存的 jar 句柄读取
+     */
+    private static class ArchiveRoot extends Root {
+        private final JarFile jarFile;
+        /** 根在 jar 中的目录，以 "/" 结尾，jar 本身为空串 */
+        private final String prefix;
+        /** 是否为文件系统中的 jar 本身，仅此时需要处理 MANIFEST Class-Path */
+        private final boolean standalone;
+
+        private ArchiveRoot(URL base, JarFile jarFile, String prefix, boolean standalone) {
+            super(base);
+            this.jarFile = jarFile;
+            this.prefix = prefix;
+            this.standalone = standalone;
+        }
+
+        @Override
+        InputStream getInputStream(String name) throws IOException {
+            ZipEntry entry = this.jarFile.getEntry(this.prefix + name);
+            if (entry == null) {
+                throw new FileNotFoundException(name + " does not exist in " + this.base);
+            }
+            return this.jarFile.getInputStream(entry);
+        }
+
+        @Override
+        Collection<String> listEntries() {
+            List<String> names = new ArrayList<>();
+            Enumeration<JarEntry> jarEntries = this.jarFile.entries();
+            while (jarEntries.hasMoreElements()) {
+                String name = jarEntries.nextElement().getName();
+                if (name.startsWith(this.prefix) && name.length() > this.prefix.length()) {
+                    names.add(name.substring(this.prefix.length()));
+                }
+            }
+            return names;
+        }
+
+        @Override
+        List<URL> getManifestClassPath() {
+            if (!this.standalone) {
+                return Collections.emptyList();
+            }
+            try {
+                Manifest manifest = this.jarFile.getManifest();
+                String classPath = manifest != null ? manifest.getMainAttributes().getValue(Attributes.Name.CLASS_PATH) : null;
+                if (StringAide.isBlank(classPath)) {
+                    return Collections.emptyList();
+                }
+                URL jarUrl = new File(this.jarFile.getName()).toURI().toURL();
+                List<URL> urls = new ArrayList<>();
+                for (String element : classPath.trim().split("\\s+")) {
+                    urls.add(new URL(jarUrl, element));
+                }
+                return urls;
+            } catch (IOException ex) {
+                logger.debug("[Caramel.ClassPathIndex] Cannot read manifest class path of {}", this.jarFile.getName(), ex);
+                return Collections.emptyList();
+            }
+        }
+    }
+
+    /**
+     * jar 中嵌套的 jar，条目在构建时由外层 jar 的句柄顺序读出，内容经由根 URL 读取
+     */
+    private static class NestedArchiveRoot extends Root {
+        private final JarFile outerJarFile;
+        private final ZipEntry entry;
+
+        private NestedArchiveRoot(URL base, JarFile outerJarFile, ZipEntry entry) {
+            super(base);
+            this.outerJarFile = outerJarFile;
+            this.entry = entry;
+        }
+
+        @Override
+        InputStream getInputStream(String name) throws IOException {
+            return getURL(name).openStream();
+        }
+
+        @Override
+        Collection<String> listEntries() throws IOException {
+            List<String> names = new ArrayList<>();
+            try (ZipInputStream input = new ZipInputStream(this.outerJarFile.getInputStream(this.entry))) {
+                for (ZipEntry nestedEntry = input.getNextEntry(); nestedEntry != null; nestedEntry = input.getNextEntry()) {
+                    names.add(nestedEntry.getName());
+                }
+            }
+            return names;
+        }
+    }
+}
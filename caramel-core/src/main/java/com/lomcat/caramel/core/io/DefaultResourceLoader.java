@@ -18,10 +18,17 @@ package com.lomcat.caramel.core.io;
 
 import com.lomcat.caramel.core.assist.AssertAide;
 
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -48,6 +55,12 @@ public class DefaultResourceLoader implements ResourceLoader {
 
     private final Map<Class<?>, Map<Resource, ?>> resourceCaches = new ConcurrentHashMap<>(4);
 
+    /** 资源解析缓存，为 null 表示未启用 */
+    private volatile ResourceResolutionCache resolutionCache;
+
+    /** 类路径索引，为 null 表示未启用 */
+    private volatile ClassPathIndex classPathIndex;
+
     /**
      * 创建一个新的 DefaultResourceLoader。
      * 在实际访问资源时，将使用线程上下文类加载器进行 ClassLoader 访问。
@@ -70,6 +83,7 @@ public class DefaultResourceLoader implements ResourceLoader {
      */
     public void setClassLoader(ClassLoader classLoader) {
         this.classLoader = classLoader;
+        clearResolutionCache();
     }
 
     /**
@@ -125,6 +139,109 @@ public class DefaultResourceLoader implements ResourceLoader {
         this.resourceCaches.clear();
     }
 
+    /**
+     * <p>
+     *     启用资源解析缓存：缓存类路径资源解析得到的 URL，以及 URL 资源是否存在，包括不存在的否定结果。
+     *     之后由此资源加载器创建的 "classpath:" 和 URL 资源的存在性检查及 URL 解析将优先使用缓存。
+     * </p>
+     * <p>
+     *     解析到 jar 中的类路径资源不会过期，其余结果在 ttl 后过期，文件系统中的资源还可以通过 {@link #invalidateResolutions(File)} 提前失效。
+     * </p>
+     *
+     * @param maximumSize 缓存容量，超出时按最近最少使用淘汰
+     * @param ttl 可变结果的有效期
+     */
+    public void enableResolutionCache(int maximumSize, Duration ttl) {
+        AssertAide.isTrue(maximumSize > 0, "Resolution cache size must be positive");
+        AssertAide.notNull(ttl, "Resolution cache TTL must not be null");
+        this.resolutionCache = new ResourceResolutionCache(maximumSize, ttl.toNanos());
+    }
+
+    /**
+     * 停用资源解析缓存
+     */
+    public void disableResolutionCache() {
+        this.resolutionCache = null;
+    }
+
+    /**
+     * 使指定路径（文件或目录）下文件系统资源的解析缓存失效，例如在监视到文件创建或删除时调用
+     *
+     * @param path 文件或目录
+     */
+    public void invalidateResolutions(File path) {
+        ResourceResolutionCache cache = this.resolutionCache;
+        if (cache != null) {
+            cache.invalidate(path);
+        }
+    }
+
+    /**
+     * 使全部可能变化的解析结果失效，只保留解析到 jar 中的类路径资源
+     */
+    public void invalidateResolutions() {
+        ResourceResolutionCache cache = this.resolutionCache;
+        if (cache != null) {
+            cache.invalidateMutable();
+        }
+    }
+
+    /**
+     * 清空资源解析缓存
+     */
+    public void clearResolutionCache() {
+        ResourceResolutionCache cache = this.resolutionCache;
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * <p>
+     *     设置类路径索引。之后由此资源加载器创建的 "classpath:" 资源的存在性检查、URL 解析和读取将优先使用索引，
+     *     仅当索引不完整且其中未找到资源时才由类加载器（及资源解析缓存）查找。
+     * </p>
+     * <p>
+     *     索引只用于与其构建时相同的类加载器；索引由调用方负责关闭。
+     * </p>
+     *
+     * @param classPathIndex 类路径索引，为 null 时停用
+     * @see ClassPathIndex#build(ClassLoader, java.util.concurrent.Executor)
+     */
+    public void setClassPathIndex(ClassPathIndex classPathIndex) {
+        this.classPathIndex = classPathIndex;
+    }
+
+    /**
+     * 返回当前使用的类路径索引，未启用时返回 null
+     */
+    public ClassPathIndex getClassPathIndex() {
+        return this.classPathIndex;
+    }
+
+    /**
+     * 通过类路径索引查找与通配符模式匹配的类路径资源，模式语法见 {@link ClassPathIndex#find(String)}
+     *
+     * @param pattern 类路径模式，可以带有 "classpath:" 前缀
+     * @return 匹配的资源
+     * @throws IllegalStateException 未启用类路径索引
+     */
+    public List<Resource> findClassPathResources(String pattern) {
+        AssertAide.notNull(pattern, "Pattern must not be null");
+        ClassPathIndex index = this.classPathIndex;
+        if (index == null) {
+            throw new IllegalStateException("Class path index is not enabled");
+        }
+        String patternToUse = pattern.startsWith(URL_PREFIX_CLASSPATH) ? pattern.substring(URL_PREFIX_CLASSPATH.length()) : pattern;
+        patternToUse = ResourceUtils.normalizePath(patternToUse);
+        if (patternToUse.startsWith("/")) {
+            patternToUse = patternToUse.substring(1);
+        }
+        List<Resource> resources = new ArrayList<>();
+        index.find(patternToUse).forEach(path -> resources.add(getResource(URL_PREFIX_CLASSPATH + path)));
+        return resources;
+    }
+
     @Override
     public Resource getResource(String location) {
         AssertAide.notNull(location, "Location must not be null");
@@ -139,10 +256,22 @@ public class DefaultResourceLoader implements ResourceLoader {
         if (location.startsWith("/")) {
             return getResourceByPath(location);
         } else if (location.startsWith(URL_PREFIX_CLASSPATH)) {
-            return new ClassPathResource(location.substring(URL_PREFIX_CLASSPATH.length()), getClassLoader());
+            ClassLoader classLoader = getClassLoader();
+            ResourceResolutionCache cache = this.resolutionCache;
+            ClassPathIndex index = this.classPathIndex;
+            if (index != null && index.getClassLoader() != classLoader) {
+                index = null;
+            }
+            return cache != null || index != null
+                    ? new CachedClassPathResource(location.substring(URL_PREFIX_CLASSPATH.length()), classLoader, cache, index)
+                    : new ClassPathResource(location.substring(URL_PREFIX_CLASSPATH.length()), classLoader);
         } else {
             try {
                 URL url = new URL(location);
+                ResourceResolutionCache cache = this.resolutionCache;
+                if (cache != null) {
+                    return ResourceUtils.isFileURL(url) ? new CachedFileUrlResource(url, cache) : new CachedUrlResource(url, cache);
+                }
                 return ResourceUtils.isFileURL(url) ? new FileUrlResource(url) : new UrlResource(url);
             } catch (MalformedURLException ex) {
                 // 没有 URL -> 解析为资源路径
@@ -183,4 +312,76 @@ public class DefaultResourceLoader implements ResourceLoader {
             return new ClassPathContextResource(pathToUse, getClassLoader());
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * 优先通过类路径索引、其次通过解析缓存解析 URL 的 {@link ClassPathResource}，二者均可为 null
+     */
+    private static class CachedClassPathResource extends ClassPathResource {
+        private final ResourceResolutionCache cache;
+        private final ClassPathIndex index;
+
+        private CachedClassPathResource(String path, ClassLoader classLoader, ResourceResolutionCache cache, ClassPathIndex index) {
+            super(path, classLoader);
+            this.cache = cache;
+            this.index = index;
+        }
+
+        @Override
+        protected URL resolveURL() {
+            if (this.index != null) {
+                URL url = this.index.getURL(getPath());
+                if (url != null || this.index.isComplete()) {
+                    return url;
+                }
+            }
+            return this.cache != null ? this.cache.resolveURL(getClassLoader(), getPath(), super::resolveURL) : super.resolveURL();
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            if (this.index != null) {
+                InputStream is = this.index.getInputStream(getPath());
+                if (is != null) {
+                    return is;
+                } else if (this.index.isComplete()) {
+                    throw new FileNotFoundException(getDescription() + " cannot be opened because it does not exist");
+                }
+            }
+            return super.getInputStream();
+        }
+    }
+
+    /**
+     * 通过解析缓存检查存在性的 {@link FileUrlResource}
+     */
+    private static class CachedFileUrlResource extends FileUrlResource {
+        private final ResourceResolutionCache cache;
+
+        private CachedFileUrlResource(URL url, ResourceResolutionCache cache) {
+            super(url);
+            this.cache = cache;
+        }
+
+        @Override
+        public boolean exists() {
+            return this.cache.exists(getURL(), super::exists);
+        }
+    }
+
+    /**
+     * 通过解析缓存检查存在性的 {@link UrlResource}
+     */
+    private static class CachedUrlResource extends UrlResource {
+        private final ResourceResolutionCache cache;
+
+        private CachedUrlResource(URL url, ResourceResolutionCache cache) {
+            super(url);
+            this.cache = cache;
+        }
+
+        @Override
+        public boolean exists() {
+            return this.cache.exists(getURL(), super::exists);
+        }
+    }
+}
@@ -22,6 +22,7 @@ import com.lomcat.caramel.core.assist.StringAide;
 import java.io.*;
 import java.net.URI;
 import java.net.URL;
+import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
@@ -238,6 +239,19 @@ public class FileSystemResource extends AbstractResource implements WritableReso
         }
     }
 
+    /**
+     * 此实现将较大的底层文件映射到内存，不支持映射的文件系统（如 zip 文件系统）读入堆缓冲区。
+     *
+     * @see ResourceUtils#mapReadOnly(Path)
+     */
+    @Override
+    public ByteBuffer asByteBuffer() throws IOException {
+        if (this.filePath.getFileSystem() != FileSystems.getDefault()) {
+            return super.asByteBuffer();
+        }
+        return ResourceUtils.mapReadOnly(this.filePath);
+    }
+
     /**
      * 此实现为底层文件打开一个 FileChannel。
      *
@@ -21,6 +21,7 @@ import com.lomcat.caramel.core.assist.AssertAide;
 import java.io.*;
 import java.net.URI;
 import java.net.URL;
+import java.nio.ByteBuffer;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
 import java.nio.file.*;
@@ -215,6 +216,19 @@ public class PathResource extends AbstractResource implements WritableResource {
         }
     }
 
+    /**
+     * 此实现将较大的底层文件映射到内存，不支持映射的文件系统（如 zip 文件系统）读入堆缓冲区。
+     *
+     * @see ResourceUtils#mapReadOnly(Path)
+     */
+    @Override
+    public ByteBuffer asByteBuffer() throws IOException {
+        if (this.path.getFileSystem() != FileSystems.getDefault()) {
+            return super.asByteBuffer();
+        }
+        return ResourceUtils.mapReadOnly(this.path);
+    }
+
     /**
      * 此实现为底层文件打开一个 Channel。
      *
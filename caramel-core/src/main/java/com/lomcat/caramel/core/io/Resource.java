@@ -21,9 +21,11 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.URL;
+import java.nio.ByteBuffer;
 import java.nio.channels.Channels;
 import java.nio.channels.ReadableByteChannel;
 import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 
 /**
  * Copied from
@@ -67,6 +69,9 @@ public interface Resource {
      *                      <li>{@link ResourceHash#ALGORITHM_SHA256 SHA-256}</li>
      *                      <li>{@link ResourceHash#ALGORITHM_SHA384 SHA-384}</li>
      *                      <li>{@link ResourceHash#ALGORITHM_SHA512 SHA-512}</li>
+     *                      <li>{@link ResourceHash#ALGORITHM_CRC32 CRC32}</li>
+     *                      <li>{@link ResourceHash#ALGORITHM_XXHASH64 xxHash64}</li>
+     *                      <li>通过 {@link ResourceHash#register(String, java.util.function.Supplier)} 注册的算法</li>
      *                  </ul>
      * @return 散列值
      * @throws NoSuchAlgorithmException 当前环境不支持指定的散列算法
@@ -176,6 +181,66 @@ public interface Resource {
         return Channels.newChannel(getInputStream());
     }
 
+    /**
+     * <p>一次性读取此资源的全部内容。</p>
+     * <p>文件系统中的资源以其长度作为初始缓冲区大小，通常只需一次分配；其余资源的缓冲区按需扩容。</p>
+     *
+     * @return 资源的全部内容
+     * @throws java.io.FileNotFoundException 如果底层资源不存在
+     * @throws IOException 如果读取失败
+     */
+    default byte[] getContentAsByteArray() throws IOException {
+        long lengthHint = -1;
+        if (isFile()) {
+            try {
+                lengthHint = contentLength();
+            } catch (IOException ex) {
+                // 长度不可用时按默认大小分配
+            }
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(lengthHint >= 0 && lengthHint <= Integer.MAX_VALUE - 8 ? (int) lengthHint : 8192);
+        try (ReadableByteChannel channel = readableChannel()) {
+            ByteBuffer probe = ByteBuffer.allocate(1);
+            while (true) {
+                if (buffer.hasRemaining()) {
+                    if (channel.read(buffer) == -1) {
+                        break;
+                    }
+                    continue;
+                }
+                // 已读满缓冲区，读取一个字节确认是否已到末尾，未到末尾时扩容
+                probe.clear();
+                if (channel.read(probe) == -1) {
+                    break;
+                }
+                if (buffer.capacity() >= Integer.MAX_VALUE - 8) {
+                    throw new IOException("Resource is too large to be read into a byte array: " + getDescription());
+                }
+                ByteBuffer expanded = ByteBuffer.allocate((int) Math.min(Integer.MAX_VALUE - 8L, Math.max(buffer.capacity() * 2L, 8192)));
+                buffer.flip();
+                probe.flip();
+                expanded.put(buffer).put(probe);
+                buffer = expanded;
+            }
+        }
+        return buffer.position() == buffer.capacity() ? buffer.array() : Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    /**
+     * <p>以只读 {@link ByteBuffer} 返回此资源的全部内容，位置为 0，界限为内容长度。</p>
+     * <p>
+     *     文件系统中的资源将较大的文件映射到内存（见 {@link ResourceUtils#mapReadOnly(java.nio.file.Path)}），消费者可直接读取而无需复制到堆中；
+     *     默认实现包装 {@link #getContentAsByteArray()} 读取的内容。
+     * </p>
+     *
+     * @return 资源的全部内容
+     * @throws java.io.FileNotFoundException 如果底层资源不存在
+     * @throws IOException 如果读取失败
+     */
+    default ByteBuffer asByteBuffer() throws IOException {
+        return ByteBuffer.wrap(getContentAsByteArray()).asReadOnlyBuffer();
+    }
+
     /**
      * <p>确定此资源的内容长度。</p>
      *
@@ -18,12 +18,30 @@ package com.lomcat.caramel.core.io;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
 
 /**
- * TODO-Kweny ResourceHash
+ * <p>
+ *     资源内容的散列计算。
+ * </p>
+ *
+ * <p>
+ *     散列算法可插拔：内置 {@link #ALGORITHM_CRC32 CRC32} 和 {@link #ALGORITHM_XXHASH64 xxHash64} 两种非加密算法，
+ *     适用于内容变化检测；其余算法名称由 {@link MessageDigest} 提供（如 {@link #ALGORITHM_SHA256 SHA-256}），适用于需要校验完整性的场景；
+ *     也可以通过 {@link #register(String, Supplier)} 注册自定义算法。
+ * </p>
+ *
+ * <p>
+ *     散列值为定长的字节数组，其十六进制字符串形式同样定长（保留前导零）。
+ *     文件系统中的资源通过 {@link Resource#asByteBuffer()} 计算（较大的文件映射到内存，不复制到堆中），
+ *     其余资源通过输入流读入按线程复用的堆缓冲区。
+ * </p>
  *
  * @author Kweny
  * @since 0.0.1
@@ -36,21 +54,179 @@ public class ResourceHash {
     public static final String ALGORITHM_SHA256 = "SHA-256";
     public static final String ALGORITHM_SHA384 = "SHA-384";
     public static final String ALGORITHM_SHA512 = "SHA-512";
+    /** CRC32，4 字节 */
+    public static final String ALGORITHM_CRC32 = "CRC32";
+    /** xxHash64，8 字节 */
+    public static final String ALGORITHM_XXHASH64 = "XXH64";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private static final Map<String, Supplier<Hasher>> HASHERS = new ConcurrentHashMap<>();
+    private static final ThreadLocal<byte[]> HEAP_BUFFER = ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
+
+    static {
+        register(ALGORITHM_CRC32, Crc32Hasher::new);
+        register(ALGORITHM_XXHASH64, XxHash64::new);
+    }
+
+    /**
+     * 散列计算器，每次计算使用一个新的实例
+     */
+    public interface Hasher {
+
+        void update(byte[] bytes, int offset, int length);
+
+        void update(ByteBuffer buffer);
+
+        /**
+         * @return 定长的散列值
+         */
+        byte[] digest();
+    }
+
+    /**
+     * 注册散列算法，同名算法将被替换
+     *
+     * @param algorithm 算法名称
+     * @param hasherFactory 散列计算器的工厂
+     */
+    public static void register(String algorithm, Supplier<Hasher> hasherFactory) {
+        HASHERS.put(algorithm, hasherFactory);
+    }
+
+    /**
+     * 创建指定算法的散列计算器，优先使用注册的算法，其次使用 {@link MessageDigest}
+     *
+     * @param algorithm 算法名称
+     * @return 散列计算器
+     * @throws NoSuchAlgorithmException 不支持指定的算法
+     */
+    public static Hasher newHasher(String algorithm) throws NoSuchAlgorithmException {
+        Supplier<Hasher> hasherFactory = HASHERS.get(algorithm);
+        return hasherFactory != null ? hasherFactory.get() : new DigestHasher(MessageDigest.getInstance(algorithm));
+    }
 
     public static String hashValue(Resource resource) throws NoSuchAlgorithmException, IOException {
         return hashValue(resource, ALGORITHM_MD5);
     }
 
     public static String hashValue(Resource resource, String algorithm) throws NoSuchAlgorithmException, IOException {
+        return toHex(hashBytes(resource, algorithm));
+    }
+
+    /**
+     * 以指定算法计算资源内容的散列值
+     *
+     * @param resource 资源
+     * @param algorithm 算法名称
+     * @return 定长的散列值
+     * @throws NoSuchAlgorithmException 不支持指定的算法
+     * @throws IOException IO 异常
+     */
+    public static byte[] hashBytes(Resource resource, String algorithm) throws NoSuchAlgorithmException, IOException {
+        if (resource.isFile()) {
+            return hashBytes(resource.asByteBuffer(), algorithm);
+        }
+        Hasher hasher = newHasher(algorithm);
+        byte[] buffer = HEAP_BUFFER.get();
         try (InputStream is = resource.getInputStream()) {
-            MessageDigest digest = MessageDigest.getInstance(algorithm);
-            byte[] buffer = new byte[1024];
-            int length = -1;
+            int length;
             while ((length = is.read(buffer, 0, buffer.length)) != -1) {
-                digest.update(buffer, 0, length);
+                hasher.update(buffer, 0, length);
             }
-            byte[] hashBytes = digest.digest();
-            return new BigInteger(1, hashBytes).toString(16);
+        }
+        return hasher.digest();
+    }
+
+    /**
+     * 以指定算法计算缓冲区剩余内容的散列值，不改变缓冲区的位置
+     *
+     * @param buffer 缓冲区，可以是 {@link Resource#asByteBuffer()} 返回的内存映射缓冲区
+     * @param algorithm 算法名称
+     * @return 定长的散列值
+     * @throws NoSuchAlgorithmException 不支持指定的算法
+     * @throws IOException 映射的文件在读取期间被截断
+     */
+    public static byte[] hashBytes(ByteBuffer buffer, String algorithm) throws NoSuchAlgorithmException, IOException {
+        Hasher hasher = newHasher(algorithm);
+        try {
+            hasher.update(buffer.duplicate());
+        } catch (InternalError e) {
+            // 访问被截断的映射区域
+            throw new IOException("Content changed while being hashed", e);
+        }
+        return hasher.digest();
+    }
+
+    /**
+     * 以指定算法计算字节数组的散列值
+     *
+     * @param bytes 字节数组
+     * @param offset 起始位置
+     * @param length 长度
+     * @param algorithm 算法名称
+     * @return 定长的散列值
+     * @throws NoSuchAlgorithmException 不支持指定的算法
+     */
+    public static byte[] hashBytes(byte[] bytes, int offset, int length, String algorithm) throws NoSuchAlgorithmException {
+        Hasher hasher = newHasher(algorithm);
+        hasher.update(bytes, offset, length);
+        return hasher.digest();
+    }
+
+    /**
+     * 将散列值转换为定长的十六进制字符串（小写，保留前导零）
+     */
+    public static String toHex(byte[] hashBytes) {
+        char[] chars = new char[hashBytes.length * 2];
+        for (int i = 0; i < hashBytes.length; i++) {
+            chars[i * 2] = HEX_DIGITS[(hashBytes[i] >> 4) & 0x0F];
+            chars[i * 2 + 1] = HEX_DIGITS[hashBytes[i] & 0x0F];
+        }
+        return new String(chars);
+    }
+
+    private static class DigestHasher implements Hasher {
+        private final MessageDigest digest;
+
+        private DigestHasher(MessageDigest digest) {
+            this.digest = digest;
+        }
+
+        @Override
+        public void update(byte[] bytes, int offset, int length) {
+            this.digest.update(bytes, offset, length);
+        }
+
+        @Override
+        public void update(ByteBuffer buffer) {
+            this.digest.update(buffer);
+        }
+
+        @Override
+        public byte[] digest() {
+            return this.digest.digest();
+        }
+    }
+
+    private static class Crc32Hasher implements Hasher {
+        private final CRC32 crc32 = new CRC32();
+
+        @Override
+        public void update(byte[] bytes, int offset, int length) {
+            this.crc32.update(bytes, offset, length);
+        }
+
+        @Override
+        public void update(ByteBuffer buffer) {
+            this.crc32.update(buffer);
+        }
+
+        @Override
+        public byte[] digest() {
+            long value = this.crc32.getValue();
+            return new byte[]{(byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value};
         }
     }
 }
@@ -0,0 +1,241 @@
+/*
+ * Copyright 2018-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.lomcat.caramel.core.io;
+
+import java.io.File;
+import java.lang.ref.WeakReference;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * <p>
+ *     资源解析结果的缓存，缓存类路径资源解析得到的 URL 以及资源是否存在，包括不存在的否定结果。容量有上限，超出时按最近最少使用淘汰。
+ * </p>
+ *
+ * <p>
+ *     缓存的有效期：
+ *     <ul>
+ *         <li>解析到 jar 中的类路径资源在类加载器的生命周期内不会变化，不会过期；</li>
+ *         <li>其余结果（否定结果、文件系统中的资源、远程 URL 资源）在 TTL 后过期，
+ *         其中文件系统中的资源还可以通过 {@link #invalidate(File)} 按路径提前失效。</li>
+ *     </ul>
+ * </p>
+ *
+ * @author Kweny
+ * @since 0.0.1
+ */
+class ResourceResolutionCache {
+
+    private static final Object ABSENT = new Object();
+
+    private final int maximumSize;
+    private final long ttlNanos;
+    private final Map<Object, Resolution> entries;
+
+    ResourceResolutionCache(int maximumSize, long ttlNanos) {
+        this.maximumSize = maximumSize;
+        this.ttlNanos = ttlNanos;
+        this.entries = new LinkedHashMap<Object, Resolution>(16, 0.75f, true) {
+            private static final long serialVersionUID = 2830374186741623094L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, Resolution> eldest) {
+                return size() > ResourceResolutionCache.this.maximumSize;
+            }
+        };
+    }
+
+    /**
+     * 获取类路径资源解析得到的 URL，未命中时使用 resolver 解析并缓存
+     *
+     * @param classLoader 解析使用的类加载器
+     * @param path 类路径
+     * @param resolver 解析器，资源不存在时返回 null
+     * @return 资源的 URL，资源不存在时返回 null
+     */
+    URL resolveURL(ClassLoader classLoader, String path, Supplier<URL> resolver) {
+        ClassPathKey key = new ClassPathKey(classLoader, path);
+        Object value = lookup(key);
+        if (value == null) {
+            URL url = resolver.get();
+            Path file = url != null && ResourceUtils.isFileURL(url) ? toPath(url) : null;
+            boolean permanent = url != null && ResourceUtils.isJarURL(url);
+            store(key, url != null ? url : ABSENT, file, permanent);
+            return url;
+        }
+        return value != ABSENT ? (URL) value : null;
+    }
+
+    /**
+     * 获取 URL 资源是否存在，未命中时使用 resolver 检查并缓存
+     *
+     * @param url 资源的 URL
+     * @param resolver 检查器
+     * @return 资源是否存在
+     */
+    boolean exists(URL url, BooleanSupplier resolver) {
+        String key = url.toExternalForm();
+        Object value = lookup(key);
+        if (value == null) {
+            boolean exists = resolver.getAsBoolean();
+            store(key, exists, ResourceUtils.isFileURL(url) ? toPath(url) : null, false);
+            return exists;
+        }
+        return (Boolean) value;
+    }
+
+    /**
+     * 使指定路径（文件或目录）下文件系统资源的缓存失效。
+     * 由于无法确定不存在的类路径资源位于哪个目录，同时移除全部否定结果
+     *
+     * @param path 文件或目录
+     */
+    void invalidate(File path) {
+        Path prefix = path.toPath().toAbsolutePath().normalize();
+        synchronized (this.entries) {
+            Iterator<Resolution> iterator = this.entries.values().iterator();
+            while (iterator.hasNext()) {
+                Resolution entry = iterator.next();
+                if ((entry.file != null && entry.file.startsWith(prefix)) || entry.value == ABSENT || Boolean.FALSE.equals(entry.value)) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * 使全部会过期的结果失效，只保留解析到 jar 中的类路径资源
+     */
+    void invalidateMutable() {
+        synchronized (this.entries) {
+            this.entries.values().removeIf(entry -> entry.expiresAt != 0);
+        }
+    }
+
+    void clear() {
+        synchronized (this.entries) {
+            this.entries.clear();
+        }
+    }
+
+    int size() {
+        synchronized (this.entries) {
+            return this.entries.size();
+        }
+    }
+
+    private Object lookup(Object key) {
+        synchronized (this.entries) {
+            Resolution entry = this.entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expiresAt != 0 && System.nanoTime() - entry.expiresAt > 0) {
+                this.entries.remove(key);
+                return null;
+            }
+            return entry.value;
+        }
+    }
+
+    private void store(Object key, Object value, Path file, boolean permanent) {
+        long expiresAt = 0;
+        if (!permanent) {
+            // 0 表示永不过期，计算结果恰为 0 时顺延 1 纳秒
+            expiresAt = System.nanoTime() + this.ttlNanos;
+            if (expiresAt == 0) {
+                expiresAt = 1;
+            }
+        }
+        synchronized (this.entries) {
+            this.entries.put(key, new Resolution(value, file, expiresAt));
+        }
+    }
+
+    private static Path toPath(URL url) {
+        try {
+            return Paths.get(url.toURI()).toAbsolutePath().normalize();
+        } catch (URISyntaxException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 类路径资源的缓存键，按引用比较类加载器，并以弱引用持有，不阻止类加载器被回收。
+     * 类加载器被回收后，键不会再被命中，由容量淘汰或过期移除
+     */
+    private static class ClassPathKey {
+        private final WeakReference<ClassLoader> classLoader;
+        private final String path;
+        private final int hash;
+
+        private ClassPathKey(ClassLoader classLoader, String path) {
+            this.classLoader = classLoader != null ? new WeakReference<>(classLoader) : null;
+            this.path = path;
+            this.hash = 31 * System.identityHashCode(classLoader) + path.hashCode();
+        }
+
+        private ClassLoader classLoader() {
+            return this.classLoader != null ? this.classLoader.get() : null;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof ClassPathKey)) {
+                return false;
+            }
+            ClassPathKey that = (ClassPathKey) other;
+            if (this.hash != that.hash || !this.path.equals(that.path)) {
+                return false;
+            }
+            if (this.classLoader == null || that.classLoader == null) {
+                return this.classLoader == that.classLoader;
+            }
+            ClassLoader classLoader = classLoader();
+            return classLoader != null && classLoader == that.classLoader();
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+    }
+
+    private static class Resolution {
+        private final Object value;
+        /** 对应的文件系统路径，非文件系统资源为 null */
+        private final Path file;
+        /** 过期时间（{@link System#nanoTime()}），0 表示永不过期 */
+        private final long expiresAt;
+
+        private Resolution(Object value, Path file, long expiresAt) {
+            this.value = value;
+            this.file = file;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -21,7 +21,13 @@ import com.lomcat.caramel.core.assist.StringAide;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayDeque;
 import java.util.Deque;
 
@@ -91,6 +97,10 @@ public class ResourceUtils {
     private static final String PARENT_PATH = "..";
     /** 路径中分隔扩展名的 '.' */
     private static final char EXTENSION_SEPARATOR = '.';
+    /** 内存映射的最小文件大小，更小的文件映射并无优势，且映射直到缓冲区被回收才会释放，不宜为大量小文件创建映射 */
+    private static final long MAPPING_THRESHOLD = 64 * 1024;
+    /** Windows 上被映射的文件在映射释放（缓冲区被回收）之前无法被替换或删除，会影响配置文件的编辑，因此不使用映射 */
+    private static final boolean MAPPING_SUPPORTED = File.separatorChar != '\\';
 
     /**
      * 检查指定资源位置是否为有效的 {@link URL}：包括标准 URL 和 "classpath" 伪 URL。
@@ -358,6 +368,41 @@ public class ResourceUtils {
         con.setUseCaches(con.getClass().getSimpleName().startsWith("JNLP"));
     }
 
+    /**
+     * <p>以只读缓冲区返回文件的全部内容：较大的文件映射到内存，不复制到堆中；较小的文件一次性读入大小恰好的堆缓冲区。</p>
+     * <p>
+     *     映射的内容在缓冲区被回收之前一直有效；若文件在此期间被截断，访问超出新长度的部分将抛出 {@link InternalError}，
+     *     调用方应尽快消费缓冲区，不宜长期持有。
+     * </p>
+     *
+     * @param path 文件路径
+     * @return 位置为 0、界限为文件长度的只读缓冲区
+     * @throws FileNotFoundException 文件不存在
+     * @throws IOException 读取失败
+     */
+    public static ByteBuffer mapReadOnly(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE - 8) {
+                throw new IOException("File is too large to be mapped into a single buffer: " + path);
+            }
+            if (MAPPING_SUPPORTED && size >= MAPPING_THRESHOLD) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            // 文件在此期间被截断时，以实际读到的内容为准
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) == -1) {
+                    break;
+                }
+            }
+            buffer.flip();
+            return buffer.asReadOnlyBuffer();
+        } catch (NoSuchFileException ex) {
+            throw new FileNotFoundException(ex.getMessage());
+        }
+    }
+
     /**
      * <p>通过抑制类似 {@code "path/.."} 中表示当前目录和上层目录的简单点 {@code "."}、{@code ".."} 之类的元素来规范化路径。</p>
      * <p>返回结果方便用于路径比较。</p>
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2018-2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.lomcat.caramel.core.io;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * <p>
+ *     xxHash64 非加密散列算法的流式实现（种子为 0），适用于内容变化检测等无需抗碰撞的场景。
+ * </p>
+ *
+ * <p>
+ *     输入以 32 字节为单位处理，不足 32 字节的部分暂存至下次更新或计算结果时处理。
+ * </p>
+ *
+ * @author Kweny
+ * @since 0.0.1
+ */
+class XxHash64 implements ResourceHash.Hasher {
+
+    private static final long PRIME1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME3 = 0x165667B19E3779F9L;
+    private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME5 = 0x27D4EB2F165667C5L;
+
+    private static final int STRIPE = 32;
+
+    private long v1 = PRIME1 + PRIME2;
+    private long v2 = PRIME2;
+    private long v3 = 0;
+    private long v4 = -PRIME1;
+    private long totalLength;
+    /** 不足一个 stripe 的暂存数据 */
+    private final ByteBuffer pending = ByteBuffer.allocate(STRIPE).order(ByteOrder.LITTLE_ENDIAN);
+
+    @Override
+    public void update(byte[] bytes, int offset, int length) {
+        update(ByteBuffer.wrap(bytes, offset, length));
+    }
+
+    @Override
+    public void update(ByteBuffer buffer) {
+        this.totalLength += buffer.remaining();
+
+        if (this.pending.position() > 0) {
+            while (this.pending.hasRemaining() && buffer.hasRemaining()) {
+                this.pending.put(buffer.get());
+            }
+            if (this.pending.hasRemaining()) {
+                return;
+            }
+            this.pending.flip();
+            processStripe(this.pending);
+            this.pending.clear();
+        }
+
+        ByteOrder order = buffer.order();
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        // 以绝对位置读取，避免逐次更新缓冲区的位置
+        int position = buffer.position();
+        int end = position + (buffer.remaining() & -STRIPE);
+        long v1 = this.v1;
+        long v2 = this.v2;
+        long v3 = this.v3;
+        long v4 = this.v4;
+        for (; position < end; position += STRIPE) {
+            v1 = round(v1, buffer.getLong(position));
+            v2 = round(v2, buffer.getLong(position + 8));
+            v3 = round(v3, buffer.getLong(position + 16));
+            v4 = round(v4, buffer.getLong(position + 24));
+        }
+        this.v1 = v1;
+        this.v2 = v2;
+        this.v3 = v3;
+        this.v4 = v4;
+        buffer.position(end);
+        buffer.order(order);
+
+        while (buffer.hasRemaining()) {
+            this.pending.put(buffer.get());
+        }
+    }
+
+    @Override
+    public byte[] digest() {
+        long hash = value();
+        byte[] bytes = new byte[8];
+        for (int i = 7; i >= 0; i--) {
+            bytes[i] = (byte) hash;
+            hash >>>= 8;
+        }
+        return bytes;
+    }
+
+    /**
+     * @return 当前已输入数据的散列值
+     */
+    long value() {
+        long hash;
+        if (this.totalLength >= STRIPE) {
+            hash = Long.rotateLeft(this.v1, 1) + Long.rotateLeft(this.v2, 7) + Long.rotateLeft(this.v3, 12) + Long.rotateLeft(this.v4, 18);
+            hash = mergeRound(hash, this.v1);
+            hash = mergeRound(hash, this.v2);
+            hash = mergeRound(hash, this.v3);
+            hash = mergeRound(hash, this.v4);
+        } else {
+            hash = PRIME5;
+        }
+        hash += this.totalLength;
+
+        ByteBuffer tail = this.pending.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        tail.flip();
+        while (tail.remaining() >= 8) {
+            hash ^= round(0, tail.getLong());
+            hash = Long.rotateLeft(hash, 27) * PRIME1 + PRIME4;
+        }
+        if (tail.remaining() >= 4) {
+            hash ^= (tail.getInt() & 0xFFFFFFFFL) * PRIME1;
+            hash = Long.rotateLeft(hash, 23) * PRIME2 + PRIME3;
+        }
+        while (tail.hasRemaining()) {
+            hash ^= (tail.get() & 0xFF) * PRIME5;
+            hash = Long.rotateLeft(hash, 11) * PRIME1;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= PRIME2;
+        hash ^= hash >>> 29;
+        hash *= PRIME3;
+        hash ^= hash >>> 32;
+        return hash;
+    }
+
+    private void processStripe(ByteBuffer buffer) {
+        this.v1 = round(this.v1, buffer.getLong());
+        this.v2 = round(this.v2, buffer.getLong());
+        this.v3 = round(this.v3, buffer.getLong());
+        this.v4 = round(this.v4, buffer.getLong());
+    }
+
+    private static long round(long accumulator, long input) {
+        accumulator += input * PRIME2;
+        accumulator = Long.rotateLeft(accumulator, 31);
+        return accumulator * PRIME1;
+    }
+
+    private static long mergeRound(long accumulator, long value) {
+        accumulator ^= round(0, value);
+        return accumulator * PRIME1 + PRIME4;
+    }
+}
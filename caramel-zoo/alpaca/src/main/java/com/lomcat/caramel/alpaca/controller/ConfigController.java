@@ -45,4 +45,10 @@ public class ConfigController {
         System.out.println(config);
         return config != null ? config.toString() : "null";
     }
+
+    @GetMapping(value = "{key}/{path:.+}")
+    public String property(@PathVariable String key, @PathVariable String path) {
+        CaramelConfig config = configRegistry.get(key);
+        return config != null ? config.getString(path, "null") : "null";
+    }
 }
\ No newline at end of file